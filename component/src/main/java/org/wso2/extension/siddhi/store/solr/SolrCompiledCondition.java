@@ -19,22 +19,199 @@
 package org.wso2.extension.siddhi.store.solr;
 
 import io.siddhi.core.util.collection.operator.CompiledCondition;
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.common.SolrDocument;
+import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents the compiled condition specific to Solr record tables.
  */
 public class SolrCompiledCondition implements CompiledCondition {
-    private String compiledQuery;
+    private SolrQueryTemplate compiledQuery;
+    private SolrQueryTemplate mainQuery;
+    private List<SolrQueryTemplate> filterQueries;
+    private List<Operand> primaryKeyOperands;
+    private Map<String, Operand> keyOperands = Collections.emptyMap();
+
+    public SolrCompiledCondition(SolrQueryTemplate compiledQuery) {
+        this(compiledQuery, compiledQuery, Collections.emptyList());
+    }
 
-    public SolrCompiledCondition(String compiledQuery) {
+    /**
+     * Creates a compiled condition which is searched as a main query and a set of filter queries.
+     *
+     * @param compiledQuery the whole compiled solr query, used where filter queries can not be sent
+     * @param mainQuery     the main query, which is empty when the whole condition is in the filter queries
+     * @param filterQueries the filter queries
+     */
+    public SolrCompiledCondition(SolrQueryTemplate compiledQuery, SolrQueryTemplate mainQuery,
+                                 List<SolrQueryTemplate> filterQueries) {
         this.compiledQuery = compiledQuery;
+        this.mainQuery = mainQuery;
+        this.filterQueries = filterQueries;
+    }
+
+    /**
+     * Creates a compiled condition which is a conjunction of equalities on the given fields, so that the documents
+     * matching the condition for a set of events can be fetched together and attributed back to the events by the
+     * values of the fields.
+     *
+     * @param compiledQuery the whole compiled solr query, used where filter queries can not be sent
+     * @param mainQuery     the main query, which is empty when the whole condition is in the filter queries
+     * @param filterQueries the filter queries
+     * @param keyOperands   the operands the fields are compared with, by the field name, typed with the types of
+     *                      the fields so that the values of the events and the documents are normalized alike
+     */
+    public SolrCompiledCondition(SolrQueryTemplate compiledQuery, SolrQueryTemplate mainQuery,
+                                 List<SolrQueryTemplate> filterQueries, Map<String, Operand> keyOperands) {
+        this(compiledQuery, mainQuery, filterQueries);
+        this.keyOperands = keyOperands;
+    }
+
+    /**
+     * Creates a compiled condition which is an equality on all the primary keys of the table, so that the id of the
+     * matching document can be derived without searching.
+     *
+     * @param compiledQuery      the compiled solr query
+     * @param primaryKeyOperands the operands the primary keys are compared with, in the primary key order, typed
+     *                           with the types of the primary keys
+     */
+    public SolrCompiledCondition(SolrQueryTemplate compiledQuery, List<Operand> primaryKeyOperands) {
+        this(compiledQuery);
+        this.primaryKeyOperands = primaryKeyOperands;
     }
 
     public String getCompiledQuery() {
+        return compiledQuery.toString();
+    }
+
+    public SolrQueryTemplate getQueryTemplate() {
         return compiledQuery;
     }
 
+    public SolrQueryTemplate getMainQueryTemplate() {
+        return mainQuery;
+    }
+
+    public List<SolrQueryTemplate> getFilterQueryTemplates() {
+        return filterQueries;
+    }
+
+    /**
+     * Returns whether the condition depends on the events it is evaluated for, such as the condition of a join.
+     */
+    public boolean isParameterized() {
+        return compiledQuery.isParameterized();
+    }
+
+    public boolean isPrimaryKeyLookup() {
+        return primaryKeyOperands != null;
+    }
+
+    /**
+     * Returns the id of the document matching a primary key lookup condition, for the given parameters. The values
+     * are converted to the types of the primary keys first, as the ids of the documents are generated from the
+     * values of the records.
+     */
+    public String resolveRecordId(Map<String, Object> parameters) {
+        Object[] values = new Object[primaryKeyOperands.size()];
+        for (int i = 0; i < values.length; i++) {
+            Operand operand = primaryKeyOperands.get(i);
+            values[i] = SolrTableUtils.convertToAttributeType(operand.resolve(parameters), operand.getType());
+        }
+        return SolrTableUtils.generateRecordIdFromValues(values);
+    }
+
+    public boolean isKeyed() {
+        return !keyOperands.isEmpty();
+    }
+
+    public List<String> getKeyFields() {
+        return new ArrayList<>(keyOperands.keySet());
+    }
+
+    /**
+     * Returns the values the key fields are compared with, for the given parameters.
+     */
+    public List<String> resolveKey(Map<String, Object> parameters) {
+        List<String> key = new ArrayList<>(keyOperands.size());
+        for (Operand operand : keyOperands.values()) {
+            key.add(normalizeKeyValue(operand.resolve(parameters), operand.getType()));
+        }
+        return key;
+    }
+
+    /**
+     * Returns the values of the key fields of the given document, comparable with the keys of the parameters.
+     */
+    public List<String> resolveKey(SolrDocument document) {
+        List<String> key = new ArrayList<>(keyOperands.size());
+        for (Map.Entry<String, Operand> entry : keyOperands.entrySet()) {
+            key.add(normalizeKeyValue(document.getFieldValue(entry.getKey()), entry.getValue().getType()));
+        }
+        return key;
+    }
+
+    private static String normalizeKeyValue(Object value, Attribute.Type type) {
+        return String.valueOf(SolrTableUtils.convertToAttributeType(value, type));
+    }
+
     public String toString() {
         return getCompiledQuery();
     }
+
+    /**
+     * Represents a stream variable or a constant a store attribute is compared with.
+     */
+    public static class Operand {
+        private String streamVariableId;
+        private Object constant;
+        private Attribute.Type type;
+
+        private Operand(String streamVariableId, Object constant, Attribute.Type type) {
+            this.streamVariableId = streamVariableId;
+            this.constant = constant;
+            this.type = type;
+        }
+
+        public static Operand streamVariable(String id, Attribute.Type type) {
+            return new Operand(id, null, type);
+        }
+
+        public static Operand constant(Object value, Attribute.Type type) {
+            return new Operand(null, value, type);
+        }
+
+        public String getStreamVariableId() {
+            return streamVariableId;
+        }
+
+        public Object getConstant() {
+            return constant;
+        }
+
+        public Attribute.Type getType() {
+            return type;
+        }
+
+        public boolean isConstant() {
+            return streamVariableId == null;
+        }
+
+        /**
+         * Returns the same operand, which is converted to the given type when it is resolved as a key value.
+         */
+        public Operand withType(Attribute.Type type) {
+            return new Operand(streamVariableId, constant, type);
+        }
+
+        public Object resolve(Map<String, Object> parameters) {
+            return streamVariableId != null ? parameters.get(streamVariableId) : constant;
+        }
+    }
 }
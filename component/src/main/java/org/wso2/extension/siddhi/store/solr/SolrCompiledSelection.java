@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.core.util.collection.operator.CompiledSelection;
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.util.NamedList;
+import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class represents the compiled selection specific to Solr record tables. The selected attributes are fetched
+ * as the field list of the search, the order by attributes are sent as the sort of the search, and the limit and
+ * the offset select the rows of the search, so that only the selected documents are read from solr.
+ * <p>
+ * The aggregations are compiled to a JSON facet request instead, with a nested terms facet for each group by
+ * attribute, so that solr returns the aggregated records rather than the documents.
+ */
+public class SolrCompiledSelection implements CompiledSelection {
+    private static final String BUCKET_COUNT = "count";
+    private static final String BUCKETS = "buckets";
+    private static final String BUCKET_VALUE = "val";
+    private static final String MISSING_BUCKET = "missing";
+    private List<Attribute> selectedAttributes;
+    private String[] fields;
+    private List<SolrQuery.SortClause> sorts;
+    private long limit;
+    private long offset;
+    private String facet;
+    private List<String> groupByFacetNames;
+    private List<Column> columns;
+    private String sortStatName;
+    private boolean descending;
+
+    /**
+     * Creates a compiled selection.
+     *
+     * @param selectedAttributes the table attributes of the output columns, in the output order
+     * @param sorts              the sort clauses, which end with the unique key when the selection is ordered
+     * @param limit              the maximum number of records selected, or a negative value when it is not limited
+     * @param offset             the number of records skipped
+     */
+    public SolrCompiledSelection(List<Attribute> selectedAttributes, List<SolrQuery.SortClause> sorts, long limit,
+                                 long offset) {
+        this.selectedAttributes = selectedAttributes;
+        this.sorts = sorts;
+        this.limit = limit;
+        this.offset = offset;
+        this.fields = new String[selectedAttributes.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = selectedAttributes.get(i).getName();
+        }
+    }
+
+    /**
+     * Creates a compiled selection which is computed by solr as a JSON facet request.
+     *
+     * @param facet             the JSON facet request, which requests the missing bucket of each terms facet, and
+     *                          a page of the outermost buckets which starts a bucket before the offset
+     * @param groupByFacetNames the names of the nested terms facets of the group by attributes, outermost first
+     * @param columns           the output columns, in the output order
+     * @param sortStatName      the statistic the buckets are sorted by, or null when they are sorted by the value
+     * @param descending        whether the buckets are sorted in the descending order
+     * @param limit             the maximum number of records selected, or a negative value when it is not limited
+     * @param offset            the number of records skipped
+     */
+    public SolrCompiledSelection(String facet, List<String> groupByFacetNames, List<Column> columns,
+                                 String sortStatName, boolean descending, long limit, long offset) {
+        this(Collections.emptyList(), Collections.emptyList(), limit, offset);
+        this.facet = facet;
+        this.groupByFacetNames = groupByFacetNames;
+        this.columns = columns;
+        this.sortStatName = sortStatName;
+        this.descending = descending;
+    }
+
+    public boolean isFacetSelection() {
+        return facet != null;
+    }
+
+    public String getFacet() {
+        return facet;
+    }
+
+    /**
+     * Creates the aggregated records from the facets of a JSON facet response, with a record for each innermost
+     * bucket, including the buckets of the documents which do not have a group by attribute.
+     *
+     * @param facets           the facets of the response
+     * @param outputAttributes the output attributes, which the values are converted to
+     * @return the aggregated records
+     */
+    public List<Object[]> createRecords(NamedList<Object> facets, Attribute[] outputAttributes) {
+        List<Object[]> records = new ArrayList<>();
+        if (groupByFacetNames.isEmpty()) {
+            if (getCount(facets) > 0 && offset == 0 && limit != 0) {
+                records.add(createRecord(facets, new Object[0], outputAttributes));
+            }
+        } else {
+            collectRecords(facets, 0, new Object[groupByFacetNames.size()], outputAttributes, records);
+        }
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectRecords(NamedList<Object> bucket, int level, Object[] groupValues,
+                                Attribute[] outputAttributes, List<Object[]> records) {
+        if (level == groupValues.length) {
+            records.add(createRecord(bucket, groupValues, outputAttributes));
+            return;
+        }
+        NamedList<Object> facet = (NamedList<Object>) bucket.get(groupByFacetNames.get(level));
+        if (facet == null) {
+            return;
+        }
+        List<NamedList<Object>> buckets = (List<NamedList<Object>>) facet.get(BUCKETS);
+        buckets = buckets != null ? new ArrayList<>(buckets) : new ArrayList<>();
+        NamedList<Object> missingBucket = (NamedList<Object>) facet.get(MISSING_BUCKET);
+        if (missingBucket != null && getCount(missingBucket) > 0) {
+            int position = 0;
+            while (position < buckets.size() && !precedes(missingBucket, buckets.get(position))) {
+                position++;
+            }
+            buckets.add(position, missingBucket);
+        }
+        if (level == 0) {
+            // the page of the buckets starts a bucket early, so that it shows whether the missing bucket precedes it
+            int start = Math.min(offset > 0 ? 1 : 0, buckets.size());
+            int end = limit >= 0 ? (int) Math.min(start + limit, buckets.size()) : buckets.size();
+            buckets = buckets.subList(start, end);
+        }
+        for (NamedList<Object> childBucket : buckets) {
+            groupValues[level] = childBucket == missingBucket ? null : childBucket.get(BUCKET_VALUE);
+            collectRecords(childBucket, level + 1, groupValues, outputAttributes, records);
+        }
+    }
+
+    /*
+    Siddhi orders the null values after all the other values in both orders, so the missing bucket follows all the
+    buckets sorted by the value, and is placed by its statistic among the buckets sorted by a statistic.
+    */
+    private boolean precedes(NamedList<Object> missingBucket, NamedList<Object> bucket) {
+        if (sortStatName == null) {
+            return false;
+        }
+        Object missingValue = missingBucket.get(sortStatName);
+        Object value = bucket.get(sortStatName);
+        if (!(missingValue instanceof Number)) {
+            return false;
+        } else if (!(value instanceof Number)) {
+            return true;
+        }
+        int comparison = Double.compare(((Number) missingValue).doubleValue(), ((Number) value).doubleValue());
+        return descending ? comparison > 0 : comparison < 0;
+    }
+
+    private Object[] createRecord(NamedList<Object> bucket, Object[] groupValues, Attribute[] outputAttributes) {
+        Object[] record = new Object[columns.size()];
+        for (int i = 0; i < record.length; i++) {
+            Column column = columns.get(i);
+            Object value = column.isGroupBy() ? groupValues[column.groupByLevel] : bucket.get(column.statName);
+            record[i] = outputAttributes != null ? SolrTableUtils.convertToAttributeType(value,
+                    outputAttributes[i].getType()) : value;
+        }
+        return record;
+    }
+
+    private static long getCount(NamedList<Object> bucket) {
+        Object count = bucket.get(BUCKET_COUNT);
+        return count instanceof Number ? ((Number) count).longValue() : 0;
+    }
+
+    public List<Attribute> getSelectedAttributes() {
+        return selectedAttributes;
+    }
+
+    public String[] getFields() {
+        return fields;
+    }
+
+    public List<SolrQuery.SortClause> getSorts() {
+        return sorts;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public boolean isLimited() {
+        return limit >= 0;
+    }
+
+    /**
+     * Represents an output column of a facet selection, which is either the value of a group by attribute or a
+     * statistic of the innermost bucket.
+     */
+    public static class Column {
+        private final int groupByLevel;
+        private final String statName;
+
+        private Column(int groupByLevel, String statName) {
+            this.groupByLevel = groupByLevel;
+            this.statName = statName;
+        }
+
+        public static Column groupBy(int level) {
+            return new Column(level, null);
+        }
+
+        public static Column stat(String name) {
+            return new Column(-1, name);
+        }
+
+        public boolean isGroupBy() {
+            return groupByLevel >= 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.core.util.collection.operator.CompiledExpression;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition.Operand;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrConditionVisitorException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * This class represents the compiled set expression of an update on Solr record tables, which is sent as an atomic
+ * update modifier of the updated field. A plain value is set to the field, while an increment of the field is sent
+ * as an 'inc' modifier, so that solr applies it to the stored value without the document being read.
+ */
+public class SolrCompiledSetExpression implements CompiledExpression {
+    public static final String SET_MODIFIER = "set";
+    public static final String INC_MODIFIER = "inc";
+    private String modifier;
+    private SolrQueryTemplate value;
+    private String attribute;
+    private Operand operand;
+    private boolean negated;
+
+    /**
+     * Creates a set expression which sets the given value to the updated field.
+     */
+    public SolrCompiledSetExpression(SolrQueryTemplate value) {
+        this.modifier = SET_MODIFIER;
+        this.value = value;
+    }
+
+    /**
+     * Creates a set expression which applies the given modifier to the given attribute.
+     *
+     * @param modifier  the atomic update modifier
+     * @param attribute the table attribute the expression is applied to, which has to be the updated attribute
+     * @param operand   the value of the modifier
+     * @param negated   whether the value is negated, such as the value subtracted from the attribute
+     */
+    public SolrCompiledSetExpression(String modifier, String attribute, Operand operand, boolean negated) {
+        this.modifier = modifier;
+        this.attribute = attribute;
+        this.operand = operand;
+        this.negated = negated;
+    }
+
+    public String getModifier() {
+        return modifier;
+    }
+
+    /**
+     * Returns whether applying the expression more than once has the same effect as applying it once, so that it
+     * can be safely sent again after a partially applied update request.
+     */
+    public boolean isIdempotent() {
+        return SET_MODIFIER.equals(modifier);
+    }
+
+    /**
+     * Checks that the expression can be assigned to the given updated attribute, as a modifier is applied to the
+     * stored value of the updated attribute itself.
+     *
+     * @param updatedAttribute the attribute the expression is assigned to
+     * @throws SolrConditionVisitorException if the expression is applied to an attribute other than the updated
+     *                                       attribute
+     */
+    public void validateUpdatedAttribute(String updatedAttribute) {
+        if (attribute != null && !attribute.equals(updatedAttribute)) {
+            throw new SolrConditionVisitorException("The '" + modifier + "' update of attribute '" + attribute +
+                    "' can not be assigned to attribute '" + updatedAttribute + "' in Solr Store, the attribute has " +
+                    "to be updated in place, such as 'set T." + attribute + " = T." + attribute + " + 1'.");
+        }
+    }
+
+    /**
+     * Resolves the atomic update for the given parameters.
+     *
+     * @param parameters the parameter values by the parameter id
+     * @return the modifier mapped to its value
+     */
+    public Map<String, Object> resolve(Map<String, Object> parameters) {
+        if (value != null) {
+            return Collections.singletonMap(modifier, value.fill(parameters));
+        }
+        Object resolved = operand.resolve(parameters);
+        return Collections.singletonMap(modifier, negated ? negate(resolved) : resolved);
+    }
+
+    private static Object negate(Object value) {
+        if (value instanceof Integer) {
+            return -(Integer) value;
+        } else if (value instanceof Long) {
+            return -(Long) value;
+        } else if (value instanceof Float) {
+            return -(Float) value;
+        } else if (value instanceof Double) {
+            return -(Double) value;
+        } else if (value instanceof Number) {
+            return -((Number) value).doubleValue();
+        }
+        String number = String.valueOf(value);
+        return number.startsWith("-") ? number.substring(1) : "-" + number;
+    }
+
+    public String toString() {
+        return value != null ? value.toString() : modifier + "(" + attribute + ", " + operand + ")";
+    }
+}
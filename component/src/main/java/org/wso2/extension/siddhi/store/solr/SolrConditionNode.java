@@ -0,0 +1,684 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.query.api.definition.Attribute;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition.Operand;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class represents a node of the condition tree built by the {@link SolrConditionVisitor}. The tree is
+ * optimized by the {@link SolrConditionOptimizer} and rendered to a {@link SolrQueryTemplate}.
+ */
+public abstract class SolrConditionNode {
+
+    private static final String MATCH_ALL_QUERY = "*:*";
+    private static final String WHITESPACE = " ";
+    private static final String OPEN_PARENTHESIS = "(";
+    private static final String CLOSE_PARENTHESIS = ")";
+    private static final String MUST = "+";
+    private static final String MUST_NOT = "-";
+    private static final String SOLR_OR = " OR ";
+
+    /**
+     * Renders the node as a clause which can be combined with other clauses.
+     */
+    abstract void render(SolrQueryTemplate.Builder builder, RenderContext context);
+
+    /**
+     * Renders the node as the whole query.
+     */
+    void renderQuery(SolrQueryTemplate.Builder builder, RenderContext context) {
+        render(builder, context);
+    }
+
+    /**
+     * Returns whether the node only takes a few distinct values across the events, such as constants and booleans,
+     * so that it is worth caching as a filter query.
+     */
+    abstract boolean isCacheable();
+
+    static boolean isCacheable(List<SolrConditionNode> nodes) {
+        for (SolrConditionNode node : nodes) {
+            if (!node.isCacheable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Matches all the documents.
+     */
+    public static class MatchAll extends SolrConditionNode {
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(MATCH_ALL_QUERY);
+        }
+
+        @Override
+        boolean isCacheable() {
+            return true;
+        }
+    }
+
+    /**
+     * Matches the documents matching all the child nodes. The negated children are rendered as prohibited clauses,
+     * adding a match-all clause when there are no other clauses to subtract them from.
+     */
+    public static class And extends SolrConditionNode {
+        private List<SolrConditionNode> children;
+
+        public And(List<SolrConditionNode> children) {
+            this.children = children;
+        }
+
+        public List<SolrConditionNode> getChildren() {
+            return children;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return isCacheable(children);
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(OPEN_PARENTHESIS);
+            renderQuery(builder, context);
+            builder.append(CLOSE_PARENTHESIS);
+        }
+
+        @Override
+        void renderQuery(SolrQueryTemplate.Builder builder, RenderContext context) {
+            boolean positive = false;
+            for (SolrConditionNode child : children) {
+                positive = positive || !(child instanceof Not);
+            }
+            boolean first = true;
+            if (!positive) {
+                builder.append(MATCH_ALL_QUERY);
+                first = false;
+            }
+            for (SolrConditionNode child : children) {
+                if (!first) {
+                    builder.append(WHITESPACE);
+                }
+                first = false;
+                if (child instanceof Not) {
+                    builder.append(MUST_NOT);
+                    ((Not) child).getChild().render(builder, context);
+                } else {
+                    builder.append(MUST);
+                    child.render(builder, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Matches the documents matching any of the child nodes. The clauses are always in parentheses, also when the
+     * node is the whole query, as solr parses a query starting with local params by that query parser alone and
+     * drops the clauses after it.
+     */
+    public static class Or extends SolrConditionNode {
+        private List<SolrConditionNode> children;
+
+        public Or(List<SolrConditionNode> children) {
+            this.children = children;
+        }
+
+        public List<SolrConditionNode> getChildren() {
+            return children;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return isCacheable(children);
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(OPEN_PARENTHESIS);
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0) {
+                    builder.append(SOLR_OR);
+                }
+                children.get(i).render(builder, context);
+            }
+            builder.append(CLOSE_PARENTHESIS);
+        }
+    }
+
+    /**
+     * Matches the documents not matching the child node, rendered as a match-all query with a prohibited clause.
+     */
+    public static class Not extends SolrConditionNode {
+        private SolrConditionNode child;
+
+        public Not(SolrConditionNode child) {
+            this.child = child;
+        }
+
+        public SolrConditionNode getChild() {
+            return child;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return child.isCacheable();
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(OPEN_PARENTHESIS);
+            renderQuery(builder, context);
+            builder.append(CLOSE_PARENTHESIS);
+        }
+
+        @Override
+        void renderQuery(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(MATCH_ALL_QUERY).append(WHITESPACE).append(MUST_NOT);
+            child.render(builder, context);
+        }
+    }
+
+    /**
+     * Matches the documents of which the field is equal to the operand. The value is dereferenced from a request
+     * parameter, so that the query string is the same for all the events. Fields which are not analyzed are matched
+     * with a term query, skipping the analysis and the phrase matching of the field query.
+     */
+    public static class Equal extends SolrConditionNode {
+        private static final String TERM_QUERY_PREFIX = "{!term f=";
+        private static final String FIELD_QUERY_PREFIX = "{!field f=";
+        private static final String VALUE_LOCAL_PARAM = " v=";
+        private static final String CLOSE_LOCAL_PARAMS = "}";
+        private String field;
+        private Attribute.Type fieldType;
+        private Operand operand;
+
+        public Equal(String field, Attribute.Type fieldType, Operand operand) {
+            this.field = field;
+            this.fieldType = fieldType;
+            this.operand = operand;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Attribute.Type getFieldType() {
+            return fieldType;
+        }
+
+        public Operand getOperand() {
+            return operand;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return operand.isConstant() || fieldType == Attribute.Type.BOOL;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(context.isAnalyzed(field, fieldType) ? FIELD_QUERY_PREFIX : TERM_QUERY_PREFIX).append(field)
+                    .append(VALUE_LOCAL_PARAM);
+            builder.appendRequestParameter(context.nextRequestParameterName(), operand.getStreamVariableId(),
+                    operand.getConstant());
+            builder.append(CLOSE_LOCAL_PARAMS);
+        }
+    }
+
+    /**
+     * Matches the documents of which the field is equal to any of the values of the operand, which is a collection
+     * or an array at runtime, using the terms query parser. The values are joined with a control character, so that
+     * the values containing commas are matched as they are.
+     */
+    public static class Terms extends SolrConditionNode {
+        private static final String TERMS_QUERY_PREFIX = "{!terms f=";
+        private static final String SEPARATOR_LOCAL_PARAM = " separator=";
+        private static final String VALUE_LOCAL_PARAM = " v=";
+        private static final String CLOSE_LOCAL_PARAMS = "}";
+        private static final String VALUE_SEPARATOR = "\u001F";
+        private String field;
+        private Operand operand;
+
+        public Terms(String field, Operand operand) {
+            this.field = field;
+            this.operand = operand;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return false;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(TERMS_QUERY_PREFIX).append(field).append(SEPARATOR_LOCAL_PARAM);
+            builder.appendRequestParameter(context.nextRequestParameterName(), null, VALUE_SEPARATOR);
+            builder.append(VALUE_LOCAL_PARAM);
+            builder.appendMultiValuedRequestParameter(context.nextRequestParameterName(),
+                    operand.getStreamVariableId(), VALUE_SEPARATOR);
+            builder.append(CLOSE_LOCAL_PARAMS);
+        }
+    }
+
+    /**
+     * Matches the documents of which the field is within the range. A null bound leaves that side of the range open.
+     * The lucene query parser does not dereference range endpoints, so the bounds are placed in the query. The bounds
+     * of the numeric fields are placed as numbers, so that solr builds a numeric range query on the trie field.
+     */
+    public static class Range extends SolrConditionNode {
+        private static final String COLON = ":";
+        private static final String UNBOUNDED = "*";
+        private static final String TO = " TO ";
+        private String field;
+        private Attribute.Type fieldType;
+        private Operand lower;
+        private boolean lowerInclusive;
+        private Operand upper;
+        private boolean upperInclusive;
+
+        public Range(String field, Attribute.Type fieldType, Operand lower, boolean lowerInclusive, Operand upper,
+                     boolean upperInclusive) {
+            this.field = field;
+            this.fieldType = fieldType;
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Operand getLower() {
+            return lower;
+        }
+
+        public Operand getUpper() {
+            return upper;
+        }
+
+        /**
+         * Returns whether the given range can be merged with this range, being the other open side on the same field.
+         */
+        public boolean isMergeableWith(Range range) {
+            return field.equals(range.field) && ((lower == null && upper != null && range.lower != null &&
+                    range.upper == null) || (lower != null && upper == null && range.lower == null &&
+                    range.upper != null));
+        }
+
+        @Override
+        boolean isCacheable() {
+            return (lower == null || lower.isConstant()) && (upper == null || upper.isConstant());
+        }
+
+        public Range merge(Range range) {
+            return lower != null ? new Range(field, fieldType, lower, lowerInclusive, range.upper,
+                    range.upperInclusive) : new Range(field, fieldType, range.lower, range.lowerInclusive, upper,
+                    upperInclusive);
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(field).append(COLON).append(lowerInclusive ? "[" : "{");
+            SolrQueryTemplate.Escaping escaping = isNumeric(fieldType) ? SolrQueryTemplate.Escaping.NUMBER :
+                    SolrQueryTemplate.Escaping.TERM;
+            appendBound(builder, lower, escaping);
+            builder.append(TO);
+            appendBound(builder, upper, escaping);
+            builder.append(upperInclusive ? "]" : "}");
+        }
+
+        private static void appendBound(SolrQueryTemplate.Builder builder, Operand bound,
+                                        SolrQueryTemplate.Escaping escaping) {
+            if (bound == null) {
+                builder.append(UNBOUNDED);
+            } else if (bound.isConstant()) {
+                builder.append(escaping.escape(String.valueOf(bound.getConstant())));
+            } else {
+                builder.appendParameter(bound.getStreamVariableId(), escaping);
+            }
+        }
+    }
+
+    /**
+     * Matches the documents of which the value of a function query is within the range, using the function range
+     * query parser. A null bound leaves that side of the range open. The function is placed in the v local parameter
+     * so that it is parsed as a whole inside a boolean query, with the stream values dereferenced by the function
+     * query parser.
+     */
+    public static class FunctionRange extends SolrConditionNode {
+        private static final String FUNCTION_RANGE_PREFIX = "{!frange";
+        private static final String LOWER_LOCAL_PARAM = " l=";
+        private static final String UPPER_LOCAL_PARAM = " u=";
+        private static final String LOWER_EXCLUSIVE = " incl=false";
+        private static final String UPPER_EXCLUSIVE = " incu=false";
+        private static final String FUNCTION_LOCAL_PARAM = " v='";
+        private static final String CLOSE_LOCAL_PARAMS = "'}";
+        private ValueSource function;
+        private Operand lower;
+        private boolean lowerInclusive;
+        private Operand upper;
+        private boolean upperInclusive;
+
+        public FunctionRange(ValueSource function, Operand lower, boolean lowerInclusive, Operand upper,
+                             boolean upperInclusive) {
+            this.function = function;
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        @Override
+        boolean isCacheable() {
+            return function.isConstant() && (lower == null || lower.isConstant()) &&
+                    (upper == null || upper.isConstant());
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(FUNCTION_RANGE_PREFIX);
+            if (lower != null) {
+                builder.append(LOWER_LOCAL_PARAM);
+                OperandValue.appendNumber(builder, context, lower);
+                if (!lowerInclusive) {
+                    builder.append(LOWER_EXCLUSIVE);
+                }
+            }
+            if (upper != null) {
+                builder.append(UPPER_LOCAL_PARAM);
+                OperandValue.appendNumber(builder, context, upper);
+                if (!upperInclusive) {
+                    builder.append(UPPER_EXCLUSIVE);
+                }
+            }
+            builder.append(FUNCTION_LOCAL_PARAM);
+            function.render(builder, context);
+            builder.append(CLOSE_LOCAL_PARAMS);
+        }
+    }
+
+    /**
+     * Represents a value computed for each document, rendered as a solr function query.
+     */
+    public abstract static class ValueSource {
+
+        abstract void render(SolrQueryTemplate.Builder builder, RenderContext context);
+
+        /**
+         * Returns the siddhi type of the value.
+         */
+        abstract Attribute.Type getType();
+
+        /**
+         * Adds the fields of the documents the value reads to the given collection.
+         */
+        abstract void collectFields(Collection<String> fields);
+
+        /**
+         * Returns whether the value reads a field of the documents.
+         */
+        abstract boolean hasField();
+
+        /**
+         * Returns whether the value is the same for all the events.
+         */
+        abstract boolean isConstant();
+    }
+
+    /**
+     * The value of a field of the document.
+     */
+    public static class FieldValue extends ValueSource {
+        private String field;
+        private Attribute.Type fieldType;
+
+        public FieldValue(String field, Attribute.Type fieldType) {
+            this.field = field;
+            this.fieldType = fieldType;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Attribute.Type getFieldType() {
+            return fieldType;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(field);
+        }
+
+        @Override
+        Attribute.Type getType() {
+            return fieldType;
+        }
+
+        @Override
+        void collectFields(Collection<String> fields) {
+            fields.add(field);
+        }
+
+        @Override
+        boolean hasField() {
+            return true;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    /**
+     * The value of a stream attribute or a constant, the same for all the documents.
+     */
+    public static class OperandValue extends ValueSource {
+        private Operand operand;
+
+        public OperandValue(Operand operand) {
+            this.operand = operand;
+        }
+
+        public Operand getOperand() {
+            return operand;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            appendNumber(builder, context, operand);
+        }
+
+        @Override
+        Attribute.Type getType() {
+            return operand.getType();
+        }
+
+        @Override
+        void collectFields(Collection<String> fields) {
+
+        }
+
+        static void appendNumber(SolrQueryTemplate.Builder builder, RenderContext context, Operand operand) {
+            if (operand.isConstant()) {
+                builder.append(SolrQueryTemplate.Escaping.NUMBER.escape(String.valueOf(operand.getConstant())));
+            } else {
+                builder.appendRequestParameter(context.nextRequestParameterName(), operand.getStreamVariableId(),
+                        null, SolrQueryTemplate.Escaping.NUMBER);
+            }
+        }
+
+        @Override
+        boolean hasField() {
+            return false;
+        }
+
+        @Override
+        boolean isConstant() {
+            return operand.isConstant();
+        }
+    }
+
+    /**
+     * The value of a solr function over other values, of the type siddhi computes the value with.
+     */
+    public static class FunctionValue extends ValueSource {
+        private static final String OPEN_PARENTHESIS = "(";
+        private static final String CLOSE_PARENTHESIS = ")";
+        private static final String COMMA = ",";
+        private String name;
+        private Attribute.Type type;
+        private List<ValueSource> arguments;
+
+        public FunctionValue(String name, Attribute.Type type, List<ValueSource> arguments) {
+            this.name = name;
+            this.type = type;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Attribute.Type getType() {
+            return type;
+        }
+
+        @Override
+        void collectFields(Collection<String> fields) {
+            for (ValueSource argument : arguments) {
+                argument.collectFields(fields);
+            }
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(name).append(OPEN_PARENTHESIS);
+            for (int i = 0; i < arguments.size(); i++) {
+                if (i > 0) {
+                    builder.append(COMMA);
+                }
+                arguments.get(i).render(builder, context);
+            }
+            builder.append(CLOSE_PARENTHESIS);
+        }
+
+        @Override
+        boolean hasField() {
+            for (ValueSource argument : arguments) {
+                if (argument.hasField()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean isConstant() {
+            for (ValueSource argument : arguments) {
+                if (!argument.isConstant()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Matches the documents which have a value for the field.
+     */
+    public static class Exists extends SolrConditionNode {
+        private static final String ANY_VALUE = ":[* TO *]";
+        private String field;
+
+        public Exists(String field) {
+            this.field = field;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.append(field).append(ANY_VALUE);
+        }
+
+        @Override
+        boolean isCacheable() {
+            return true;
+        }
+    }
+
+    /**
+     * Matches all the documents or none of them, depending on a boolean computed from the stream attributes only.
+     */
+    public static class StreamPredicate extends SolrConditionNode {
+        private String streamVariableId;
+
+        public StreamPredicate(String streamVariableId) {
+            this.streamVariableId = streamVariableId;
+        }
+
+        @Override
+        void render(SolrQueryTemplate.Builder builder, RenderContext context) {
+            builder.appendParameter(streamVariableId, SolrQueryTemplate.Escaping.PREDICATE);
+        }
+
+        @Override
+        boolean isCacheable() {
+            return true;
+        }
+    }
+
+    static boolean isNumeric(Attribute.Type type) {
+        return type == Attribute.Type.INT || type == Attribute.Type.LONG || type == Attribute.Type.FLOAT ||
+                type == Attribute.Type.DOUBLE;
+    }
+
+    /**
+     * Holds the state shared while rendering the nodes of a condition.
+     */
+    static class RenderContext {
+        private static final String REQUEST_PARAMETER_PREFIX = "p";
+        private Set<String> analyzedFields;
+        private int requestParameterCount;
+
+        RenderContext(Set<String> analyzedFields) {
+            this.analyzedFields = analyzedFields;
+        }
+
+        /**
+         * Returns whether the values of the field are analyzed, for the fields of text types in the collection
+         * schema and the attributes of the object type.
+         */
+        boolean isAnalyzed(String field, Attribute.Type fieldType) {
+            return fieldType == Attribute.Type.OBJECT || analyzedFields.contains(field);
+        }
+
+        String nextRequestParameterName() {
+            return REQUEST_PARAMETER_PREFIX + requestParameterCount++;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr;
+
+import org.wso2.extension.siddhi.store.solr.SolrConditionNode.And;
+import org.wso2.extension.siddhi.store.solr.SolrConditionNode.MatchAll;
+import org.wso2.extension.siddhi.store.solr.SolrConditionNode.Not;
+import org.wso2.extension.siddhi.store.solr.SolrConditionNode.Or;
+import org.wso2.extension.siddhi.store.solr.SolrConditionNode.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class rewrites a condition tree into an equivalent tree which is cheaper for solr to parse and execute.
+ * Nested conjunctions and disjunctions are flattened, the open ranges on the same field are merged, double negations
+ * and negated disjunctions are removed, and the redundant match-all clauses are dropped.
+ */
+public class SolrConditionOptimizer {
+
+    private SolrConditionOptimizer() {
+
+    }
+
+    public static SolrConditionNode optimize(SolrConditionNode node) {
+        if (node instanceof And) {
+            return optimizeAnd(((And) node).getChildren());
+        } else if (node instanceof Or) {
+            return optimizeOr(((Or) node).getChildren());
+        } else if (node instanceof Not) {
+            return optimizeNot(((Not) node).getChild());
+        }
+        return node;
+    }
+
+    private static SolrConditionNode optimizeAnd(List<SolrConditionNode> children) {
+        List<SolrConditionNode> flattened = new ArrayList<>();
+        for (SolrConditionNode child : children) {
+            SolrConditionNode optimized = optimize(child);
+            if (optimized instanceof And) {
+                flattened.addAll(((And) optimized).getChildren());
+            } else if (!(optimized instanceof MatchAll)) {
+                flattened.add(optimized);
+            }
+        }
+        List<SolrConditionNode> merged = new ArrayList<>(flattened.size());
+        for (SolrConditionNode child : flattened) {
+            int mergeableIndex = child instanceof Range ? findMergeableRange(merged, (Range) child) : -1;
+            if (mergeableIndex >= 0) {
+                merged.set(mergeableIndex, ((Range) merged.get(mergeableIndex)).merge((Range) child));
+            } else {
+                merged.add(child);
+            }
+        }
+        if (merged.isEmpty()) {
+            return new MatchAll();
+        } else if (merged.size() == 1) {
+            return merged.get(0);
+        }
+        return new And(merged);
+    }
+
+    private static int findMergeableRange(List<SolrConditionNode> nodes, Range range) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) instanceof Range && ((Range) nodes.get(i)).isMergeableWith(range)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static SolrConditionNode optimizeOr(List<SolrConditionNode> children) {
+        List<SolrConditionNode> flattened = new ArrayList<>();
+        for (SolrConditionNode child : children) {
+            SolrConditionNode optimized = optimize(child);
+            if (optimized instanceof MatchAll) {
+                return optimized;
+            } else if (optimized instanceof Or) {
+                flattened.addAll(((Or) optimized).getChildren());
+            } else {
+                flattened.add(optimized);
+            }
+        }
+        return flattened.size() == 1 ? flattened.get(0) : new Or(flattened);
+    }
+
+    private static SolrConditionNode optimizeNot(SolrConditionNode child) {
+        SolrConditionNode optimized = optimize(child);
+        if (optimized instanceof Not) {
+            return ((Not) optimized).getChild();
+        } else if (optimized instanceof Or) {
+            // not (a or b) is rendered as prohibited clauses of a single query: *:* -a -b
+            List<SolrConditionNode> negated = new ArrayList<>();
+            for (SolrConditionNode orChild : ((Or) optimized).getChildren()) {
+                negated.add(new Not(orChild));
+            }
+            return optimizeAnd(negated);
+        }
+        return new Not(optimized);
+    }
+}
@@ -21,54 +21,169 @@ package org.wso2.extension.siddhi.store.solr;
 import io.siddhi.core.table.record.BaseExpressionVisitor;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.expression.condition.Compare;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition.Operand;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrConditionVisitorException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class represents the Condition vistor implementation specific to Solr record tables.
+ * The visited expression is built into a tree of {@link SolrConditionNode}s, which is optimized before being
+ * rendered to the solr query.
  */
 public class SolrConditionVisitor extends BaseExpressionVisitor {
 
-    private static final String WHITESPACE = " ";
-
-    private static final String SOLR_AND = "AND";
-    private static final String SOLR_OR = "OR";
-    private static final String SOLR_NOT = "NOT";
-    private static final String SQL_MATH_SUBTRACT = "-";
-
     private static final String OPEN_PARENTHESIS = "(";
-    private static final String CLOSE_PARENTHESIS = ")";
-    private static final String COLON = ":";
-    private static final String OPEN_SQUARE_BRACKET = "[";
-    private static final String CLOSE_SQUARE_BRACKET = "]";
-    private static final String ASTERISK = "*";
-    private static final String TO = "TO";
-    private static final String OPEN_CURLY_BRACKET = "{";
-    private static final String CLOSE_CURLY_BRACKET = "}";
-    private static final String DOUBLE_QUOTE = "\"";
-    private static final String EXCLAMATION_MARK = "!";
-
-
-    private StringBuilder condition;
-    private String currentStreamVariable;
-    private String currentStoreVariable;
-    private boolean isBeginCompareRightOperand;
-    private boolean isStoreVariableOnRight;
+    private static final String CONSTANT_SCORE = ")^=1";
+    private static final String SOLR_ADD = "sum";
+    private static final String SOLR_SUBTRACT = "sub";
+    private static final String SOLR_MULTIPLY = "product";
+    private static final String SOLR_DIVIDE = "div";
+    private static final String SOLR_MOD = "mod";
+    private static final String MATH_NAMESPACE = "math";
+    private Deque<List<SolrConditionNode>> nodes;
+    private SolrConditionNode condition;
+    private Deque<List<SolrConditionNode.ValueSource>> values;
+    private Set<String> analyzedFields;
+    private boolean objectTerms;
 
     public SolrConditionVisitor() {
-        condition = new StringBuilder();
+        this(Collections.emptySet());
+    }
+
+    /**
+     * Creates a visitor for a table of which the given fields are analyzed, so that they are not matched by terms.
+     */
+    public SolrConditionVisitor(Set<String> analyzedFields) {
+        this(analyzedFields, false);
+    }
+
+    /**
+     * Creates a visitor for a table of which the given fields are analyzed, so that they are not matched by terms.
+     *
+     * @param analyzedFields the analyzed fields of the table
+     * @param objectTerms    whether the equalities with the stream attributes of the object type are matched as set
+     *                       memberships, rather than as single values
+     */
+    public SolrConditionVisitor(Set<String> analyzedFields, boolean objectTerms) {
+        this.analyzedFields = analyzedFields;
+        this.objectTerms = objectTerms;
+        nodes = new ArrayDeque<>();
+        nodes.push(new ArrayList<>());
+        values = new ArrayDeque<>();
     }
 
     public String returnCondition() {
-        return condition.toString().trim();
+        return returnTemplate().toString();
+    }
+
+    public SolrQueryTemplate returnTemplate() {
+        SolrQueryTemplate.Builder builder = new SolrQueryTemplate.Builder();
+        getCondition().renderQuery(builder, new SolrConditionNode.RenderContext(analyzedFields));
+        return builder.build();
+    }
+
+    /**
+     * Returns the compiled condition, with the conjuncts which take a few distinct values across the events, such
+     * as the constant and the boolean comparisons, split into filter queries which are cached by solr. The rest of
+     * the conjuncts form a constant score main query, as the matches are never ranked.
+     */
+    public SolrCompiledCondition returnCompiledCondition() {
+        SolrConditionNode root = getCondition();
+        List<SolrConditionNode> conjuncts = root instanceof SolrConditionNode.And ?
+                ((SolrConditionNode.And) root).getChildren() : Collections.singletonList(root);
+        SolrConditionNode.RenderContext context = new SolrConditionNode.RenderContext(analyzedFields);
+        List<SolrQueryTemplate> filterQueries = new ArrayList<>();
+        List<SolrConditionNode> mainConjuncts = new ArrayList<>();
+        for (SolrConditionNode conjunct : conjuncts) {
+            if (conjunct instanceof SolrConditionNode.MatchAll) {
+                continue;
+            }
+            if (conjunct.isCacheable()) {
+                SolrQueryTemplate.Builder builder = new SolrQueryTemplate.Builder();
+                conjunct.renderQuery(builder, context);
+                filterQueries.add(builder.build());
+            } else {
+                mainConjuncts.add(conjunct);
+            }
+        }
+        SolrQueryTemplate.Builder mainQuery = new SolrQueryTemplate.Builder();
+        if (!mainConjuncts.isEmpty()) {
+            mainQuery.append(OPEN_PARENTHESIS);
+            (mainConjuncts.size() == 1 ? mainConjuncts.get(0) : new SolrConditionNode.And(mainConjuncts))
+                    .renderQuery(mainQuery, context);
+            mainQuery.append(CONSTANT_SCORE);
+        }
+        return new SolrCompiledCondition(returnTemplate(), mainQuery.build(), filterQueries, returnKeyOperands());
+    }
+
+    /*
+    The documents matching an equality on an analyzed field can not be told apart by the value of the field, so such
+    conditions are not keyed.
+    */
+    private Map<String, Operand> returnKeyOperands() {
+        Map<String, Operand> equalityOperands = returnEqualityOperands();
+        for (Map.Entry<String, Operand> entry : equalityOperands.entrySet()) {
+            if (analyzedFields.contains(entry.getKey()) || entry.getValue().getType() == Attribute.Type.OBJECT) {
+                return Collections.emptyMap();
+            }
+        }
+        return equalityOperands;
+    }
+
+    /**
+     * Returns the store attributes compared for equality in the condition, when the condition is only a
+     * conjunction of such comparisons, with each attribute compared once. Otherwise an empty map is returned. The
+     * operands are typed with the types of the store attributes, so that they resolve to the values the attributes
+     * are stored with.
+     */
+    public Map<String, Operand> returnEqualityOperands() {
+        SolrConditionNode root = getCondition();
+        List<SolrConditionNode> conjuncts = root instanceof SolrConditionNode.And ?
+                ((SolrConditionNode.And) root).getChildren() : Collections.singletonList(root);
+        Map<String, Operand> equalityOperands = new LinkedHashMap<>();
+        for (SolrConditionNode conjunct : conjuncts) {
+            if (!(conjunct instanceof SolrConditionNode.Equal)) {
+                return Collections.emptyMap();
+            }
+            SolrConditionNode.Equal equal = (SolrConditionNode.Equal) conjunct;
+            if (equalityOperands.put(equal.getField(), equal.getOperand().withType(equal.getFieldType())) != null) {
+                return Collections.emptyMap();
+            }
+        }
+        return equalityOperands;
+    }
+
+    private SolrConditionNode getCondition() {
+        if (condition == null) {
+            List<SolrConditionNode> roots = nodes.peek();
+            condition = SolrConditionOptimizer.optimize(roots.isEmpty() ? new SolrConditionNode.MatchAll() :
+                    roots.get(0));
+        }
+        return condition;
+    }
+
+    private void addNode(SolrConditionNode node) {
+        nodes.peek().add(node);
     }
 
     @Override
     public void beginVisitAnd() {
-        condition.append(OPEN_PARENTHESIS);
+        nodes.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitAnd() {
-        condition.append(CLOSE_PARENTHESIS);
+        addNode(new SolrConditionNode.And(nodes.pop()));
     }
 
     @Override
@@ -83,7 +198,7 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitAndRightOperand() {
-        condition.append(SOLR_AND).append(WHITESPACE);
+        //Not applicable
     }
 
     @Override
@@ -93,12 +208,12 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitOr() {
-        condition.append(OPEN_PARENTHESIS);
+        nodes.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitOr() {
-        condition.append(CLOSE_PARENTHESIS);
+        addNode(new SolrConditionNode.Or(nodes.pop()));
     }
 
     @Override
@@ -113,7 +228,7 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitOrRightOperand() {
-        condition.append(SOLR_OR).append(WHITESPACE);
+        //Not applicable
     }
 
     @Override
@@ -123,34 +238,141 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitNot() {
-        condition.append(SOLR_NOT).append(WHITESPACE).append(OPEN_PARENTHESIS);
+        nodes.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitNot() {
-        condition.append(CLOSE_PARENTHESIS);
+        addNode(new SolrConditionNode.Not(nodes.pop().get(0)));
     }
 
     @Override
     public void beginVisitCompare(Compare.Operator operator) {
-        condition.append(OPEN_PARENTHESIS);
+        values.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitCompare(Compare.Operator operator) {
-        condition.append(CLOSE_PARENTHESIS);
+        List<SolrConditionNode.ValueSource> operands = values.pop();
+        addNode(createComparison(operator, operands.get(0), operands.get(1)));
+    }
+
+    private SolrConditionNode createComparison(Compare.Operator operator, SolrConditionNode.ValueSource left,
+                                               SolrConditionNode.ValueSource right) {
+        if (left instanceof SolrConditionNode.FieldValue && right instanceof SolrConditionNode.OperandValue) {
+            return createFieldComparison(operator, (SolrConditionNode.FieldValue) left,
+                    ((SolrConditionNode.OperandValue) right).getOperand());
+        } else if (right instanceof SolrConditionNode.FieldValue && left instanceof SolrConditionNode.OperandValue) {
+            return createFieldComparison(flip(operator), (SolrConditionNode.FieldValue) right,
+                    ((SolrConditionNode.OperandValue) left).getOperand());
+        } else if (!left.hasField() && !right.hasField()) {
+            throw new SolrConditionVisitorException("Comparison '" + operator + "' without any store attribute " +
+                    "is not supported in Solr Store");
+        }
+        // comparisons over computed values are matched with a function range on the documents
+        if (!SolrConditionNode.isNumeric(left.getType()) || !SolrConditionNode.isNumeric(right.getType())) {
+            throw new SolrConditionVisitorException("Comparison '" + operator + "' of a store attribute with a " +
+                    "store attribute or a computed value is only supported on numeric values in Solr Store");
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        left.collectFields(fields);
+        right.collectFields(fields);
+        SolrConditionNode range;
+        if (right instanceof SolrConditionNode.OperandValue) {
+            range = createFunctionRange(operator, left, ((SolrConditionNode.OperandValue) right).getOperand());
+        } else if (left instanceof SolrConditionNode.OperandValue) {
+            range = createFunctionRange(flip(operator), right, ((SolrConditionNode.OperandValue) left).getOperand());
+        } else {
+            range = createFunctionRange(operator, new SolrConditionNode.FunctionValue(SOLR_SUBTRACT,
+                    promote(Arrays.asList(left, right)), Arrays.asList(left, right)),
+                    Operand.constant(0, Attribute.Type.INT));
+        }
+        // solr reads a missing field as 0 in a function, while siddhi does not match a comparison with a null
+        List<SolrConditionNode> conjuncts = new ArrayList<>(fields.size() + 1);
+        for (String field : fields) {
+            conjuncts.add(new SolrConditionNode.Exists(field));
+        }
+        conjuncts.add(range);
+        return new SolrConditionNode.And(conjuncts);
     }
 
-    @Override
-    public void beginVisitCompareLeftOperand(Compare.Operator operator) {
+    private SolrConditionNode createFieldComparison(Compare.Operator operator, SolrConditionNode.FieldValue field,
+                                                    Operand operand) {
         switch (operator) {
+            case EQUAL:
+                return createEquality(field, operand);
             case NOT_EQUAL:
-                condition.append(EXCLAMATION_MARK);
-                break;
+                return new SolrConditionNode.Not(createEquality(field, operand));
+            case GREATER_THAN:
+                return new SolrConditionNode.Range(field.getField(), field.getFieldType(), operand, false, null, true);
+            case GREATER_THAN_EQUAL:
+                return new SolrConditionNode.Range(field.getField(), field.getFieldType(), operand, true, null, true);
+            case LESS_THAN:
+                return new SolrConditionNode.Range(field.getField(), field.getFieldType(), null, true, operand, false);
+            case LESS_THAN_EQUAL:
+                return new SolrConditionNode.Range(field.getField(), field.getFieldType(), null, true, operand, true);
+            default:
+                throw new SolrConditionVisitorException("'" + operator + "' not supported in Solr Store");
+        }
+    }
+
+    /*
+    When enabled for the table, a stream attribute of the object type may carry a collection or an array of values,
+    which is matched as a set membership with the terms query parser. A single value is matched as a set of one
+    value.
+    */
+    private SolrConditionNode createEquality(SolrConditionNode.FieldValue field, Operand operand) {
+        if (objectTerms && !operand.isConstant() && operand.getType() == Attribute.Type.OBJECT) {
+            return new SolrConditionNode.Terms(field.getField(), operand);
+        }
+        return new SolrConditionNode.Equal(field.getField(), field.getFieldType(), operand);
+    }
+
+    private SolrConditionNode createFunctionRange(Compare.Operator operator, SolrConditionNode.ValueSource function,
+                                                  Operand operand) {
+        switch (operator) {
+            case EQUAL:
+                return new SolrConditionNode.FunctionRange(function, operand, true, operand, true);
+            case NOT_EQUAL:
+                return new SolrConditionNode.Not(new SolrConditionNode.FunctionRange(function, operand, true,
+                        operand, true));
+            case GREATER_THAN:
+                return new SolrConditionNode.FunctionRange(function, operand, false, null, true);
+            case GREATER_THAN_EQUAL:
+                return new SolrConditionNode.FunctionRange(function, operand, true, null, true);
+            case LESS_THAN:
+                return new SolrConditionNode.FunctionRange(function, null, true, operand, false);
+            case LESS_THAN_EQUAL:
+                return new SolrConditionNode.FunctionRange(function, null, true, operand, true);
             default:
+                throw new SolrConditionVisitorException("'" + operator + "' not supported in Solr Store");
         }
     }
 
+    private static Compare.Operator flip(Compare.Operator operator) {
+        switch (operator) {
+            case GREATER_THAN:
+                return Compare.Operator.LESS_THAN;
+            case GREATER_THAN_EQUAL:
+                return Compare.Operator.LESS_THAN_EQUAL;
+            case LESS_THAN:
+                return Compare.Operator.GREATER_THAN;
+            case LESS_THAN_EQUAL:
+                return Compare.Operator.GREATER_THAN_EQUAL;
+            default:
+                return operator;
+        }
+    }
+
+    private void addValue(SolrConditionNode.ValueSource value) {
+        values.peek().add(value);
+    }
+
+    @Override
+    public void beginVisitCompareLeftOperand(Compare.Operator operator) {
+        //Not applicable
+    }
+
     @Override
     public void endVisitCompareLeftOperand(Compare.Operator operator) {
         //Not applicable
@@ -158,99 +380,36 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitCompareRightOperand(Compare.Operator operator) {
-        isBeginCompareRightOperand = true;
+        //Not applicable
     }
 
     @Override
     public void endVisitCompareRightOperand(Compare.Operator operator) {
-        condition.append(currentStoreVariable).append(COLON);
-        if (!isStoreVariableOnRight) {
-            switch (operator) {
-                case LESS_THAN:
-                    condition.append(OPEN_CURLY_BRACKET).append(ASTERISK).append(WHITESPACE).append(TO)
-                            .append(WHITESPACE);
-                    condition.append(currentStreamVariable);
-                    condition.append(CLOSE_CURLY_BRACKET);
-                    break;
-                case GREATER_THAN:
-                    condition.append(OPEN_CURLY_BRACKET);
-                    condition.append(currentStreamVariable);
-                    condition.append(WHITESPACE).append(TO).append(WHITESPACE).append(ASTERISK)
-                            .append(CLOSE_CURLY_BRACKET);
-                    break;
-                case LESS_THAN_EQUAL:
-                    condition.append(OPEN_SQUARE_BRACKET).append(ASTERISK).append(WHITESPACE).append(TO)
-                            .append(WHITESPACE);
-                    condition.append(currentStreamVariable);
-                    condition.append(CLOSE_SQUARE_BRACKET);
-                    break;
-                case GREATER_THAN_EQUAL:
-                    condition.append(OPEN_SQUARE_BRACKET);
-                    condition.append(currentStreamVariable);
-                    condition.append(WHITESPACE).append(TO).append(WHITESPACE).append(ASTERISK)
-                            .append(CLOSE_SQUARE_BRACKET);
-                    break;
-                case EQUAL:
-                case NOT_EQUAL:
-                    condition.append(DOUBLE_QUOTE);
-                    condition.append(currentStreamVariable);
-                    condition.append(DOUBLE_QUOTE);
-                    break;
-            }
-        } else {
-            isStoreVariableOnRight = false;
-            switch (operator) {
-                case GREATER_THAN_EQUAL:
-                    condition.append(OPEN_CURLY_BRACKET).append(ASTERISK).append(WHITESPACE).append(TO)
-                            .append(WHITESPACE);
-                    condition.append(currentStreamVariable);
-                    condition.append(CLOSE_CURLY_BRACKET);
-                    break;
-                case LESS_THAN_EQUAL:
-                    condition.append(OPEN_CURLY_BRACKET);
-                    condition.append(currentStreamVariable);
-                    condition.append(WHITESPACE).append(TO).append(WHITESPACE).append(ASTERISK)
-                            .append(CLOSE_CURLY_BRACKET);
-                    break;
-                case GREATER_THAN:
-                    condition.append(OPEN_SQUARE_BRACKET).append(ASTERISK).append(WHITESPACE)
-                            .append(TO).append(WHITESPACE);
-                    condition.append(currentStreamVariable);
-                    condition.append(CLOSE_SQUARE_BRACKET);
-                    break;
-                case LESS_THAN:
-                    condition.append(OPEN_SQUARE_BRACKET);
-                    condition.append(currentStreamVariable);
-                    condition.append(WHITESPACE).append(TO).append(WHITESPACE).append(ASTERISK)
-                            .append(CLOSE_SQUARE_BRACKET);
-                    break;
-                case EQUAL:
-                case NOT_EQUAL:
-                    condition.append(DOUBLE_QUOTE);
-                    condition.append(currentStreamVariable);
-                    condition.append(DOUBLE_QUOTE);
-                    break;
-            }
-        }
-        isBeginCompareRightOperand = false;
+        //Not applicable
     }
 
     @Override
     public void beginVisitIsNull(String streamId) {
-        condition.append(OPEN_PARENTHESIS).append(SQL_MATH_SUBTRACT);
+        values.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitIsNull(String streamId) {
-        condition.append(currentStoreVariable);
-        condition.append(COLON).append(OPEN_SQUARE_BRACKET).append(ASTERISK).append(WHITESPACE).append(TO).append
-                (WHITESPACE).append(ASTERISK).append(CLOSE_SQUARE_BRACKET).append(WHITESPACE).append(SOLR_AND).append
-                (WHITESPACE).append(ASTERISK).append(COLON).append(ASTERISK).append(CLOSE_PARENTHESIS);
+        List<SolrConditionNode.ValueSource> operands = values.pop();
+        if (operands.size() != 1 || !(operands.get(0) instanceof SolrConditionNode.FieldValue)) {
+            throw new SolrConditionVisitorException("'Null' check is only supported on the store attributes in " +
+                    "Solr Store");
+        }
+        addNode(new SolrConditionNode.Not(new SolrConditionNode.Exists(
+                ((SolrConditionNode.FieldValue) operands.get(0)).getField())));
     }
 
     @Override
     public void beginVisitIn(String storeId) {
-        //Not applicable
+        throw new SolrConditionVisitorException("Condition 'in " + storeId + "' on the store attributes is not " +
+                "supported in Solr Store, as the values of table '" + storeId + "' are not available to the store. " +
+                "Compare the store attribute with a stream attribute of the object type carrying a collection of the " +
+                "values instead, with the 'condition.object.terms' option of the table enabled");
     }
 
     @Override
@@ -265,17 +424,58 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitConstant(Object value, Attribute.Type type) {
-        currentStreamVariable = value.toString();
+        if (!values.isEmpty()) {
+            addValue(new SolrConditionNode.OperandValue(Operand.constant(value, type)));
+        } else if (value instanceof Boolean) {
+            SolrConditionNode matchAll = new SolrConditionNode.MatchAll();
+            addNode((Boolean) value ? matchAll : new SolrConditionNode.Not(matchAll));
+        } else {
+            throw new SolrConditionVisitorException("Constant '" + value + "' is not a valid condition");
+        }
     }
 
     @Override
     public void beginVisitMath(MathOperator mathOperator) {
-        //Not applicable
+        if (values.isEmpty()) {
+            throw new SolrConditionVisitorException("'" + mathOperator + "' is not a valid condition");
+        }
+        values.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitMath(MathOperator mathOperator) {
-        //Not applicable
+        String function;
+        switch (mathOperator) {
+            case ADD:
+                function = SOLR_ADD;
+                break;
+            case SUBTRACT:
+                function = SOLR_SUBTRACT;
+                break;
+            case MULTIPLY:
+                function = SOLR_MULTIPLY;
+                break;
+            case DIVIDE:
+                function = SOLR_DIVIDE;
+                break;
+            case MOD:
+                function = SOLR_MOD;
+                break;
+            default:
+                throw new SolrConditionVisitorException("'" + mathOperator + "' not supported in Solr Store");
+        }
+        List<SolrConditionNode.ValueSource> operands = values.pop();
+        Attribute.Type type = promote(operands);
+        if (type == null) {
+            throw new SolrConditionVisitorException("'" + mathOperator + "' on non-numeric values not supported in " +
+                    "Solr Store");
+        } else if (mathOperator == MathOperator.DIVIDE && (type == Attribute.Type.INT ||
+                type == Attribute.Type.LONG)) {
+            // solr divides as floating point numbers, while siddhi divides the integers as integers
+            throw new SolrConditionVisitorException("'" + mathOperator + "' of integer values not supported in " +
+                    "Solr Store");
+        }
+        addValue(new SolrConditionNode.FunctionValue(function, type, operands));
     }
 
     @Override
@@ -300,12 +500,93 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitAttributeFunction(String namespace, String functionName) {
-        //Not applicable
+        if (values.isEmpty() || getSolrFunction(namespace, functionName) == null) {
+            throw new SolrConditionVisitorException("Function '" + (namespace == null || namespace.isEmpty() ? "" :
+                    namespace + ":") + functionName + "' on store attributes not supported in Solr Store");
+        }
+        values.push(new ArrayList<>());
     }
 
     @Override
     public void endVisitAttributeFunction(String namespace, String functionName) {
-        //Not applicable
+        List<SolrConditionNode.ValueSource> arguments = values.pop();
+        String function = getSolrFunction(namespace, functionName);
+        Attribute.Type type = promote(arguments);
+        if (type == null) {
+            throw new SolrConditionVisitorException("Function '" + (namespace == null || namespace.isEmpty() ? "" :
+                    namespace + ":") + functionName + "' on non-numeric values not supported in Solr Store");
+        }
+        addValue(new SolrConditionNode.FunctionValue(function, getFunctionType(function, type), arguments));
+    }
+
+    /*
+    Returns the type siddhi computes an arithmetic value of the given values with, or null when any of the values is
+    not numeric.
+    */
+    private static Attribute.Type promote(List<SolrConditionNode.ValueSource> values) {
+        Attribute.Type type = Attribute.Type.INT;
+        for (SolrConditionNode.ValueSource value : values) {
+            Attribute.Type valueType = value.getType();
+            if (!SolrConditionNode.isNumeric(valueType)) {
+                return null;
+            } else if (valueType == Attribute.Type.DOUBLE || type == Attribute.Type.DOUBLE) {
+                type = Attribute.Type.DOUBLE;
+            } else if (valueType == Attribute.Type.FLOAT || type == Attribute.Type.FLOAT) {
+                type = Attribute.Type.FLOAT;
+            } else if (valueType == Attribute.Type.LONG) {
+                type = Attribute.Type.LONG;
+            }
+        }
+        return type;
+    }
+
+    private static Attribute.Type getFunctionType(String function, Attribute.Type argumentType) {
+        switch (function) {
+            case "max":
+            case "min":
+            case "abs":
+                return argumentType;
+            case "rint":
+                return Attribute.Type.LONG;
+            default:
+                return Attribute.Type.DOUBLE;
+        }
+    }
+
+    /*
+    Maps the siddhi functions to the solr functions which compute the same value. The siddhi core functions have no
+    namespace, and the math functions are in the math namespace.
+    */
+    private static String getSolrFunction(String namespace, String functionName) {
+        if (namespace == null || namespace.isEmpty()) {
+            switch (functionName) {
+                case "maximum":
+                    return "max";
+                case "minimum":
+                    return "min";
+                default:
+                    return null;
+            }
+        } else if (MATH_NAMESPACE.equals(namespace)) {
+            switch (functionName) {
+                case "abs":
+                case "sqrt":
+                case "exp":
+                case "ln":
+                case "ceil":
+                case "floor":
+                    return functionName;
+                case "log10":
+                    return "log";
+                case "power":
+                    return "pow";
+                case "round":
+                    return "rint";
+                default:
+                    return null;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -320,8 +601,12 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
-        String placeHolder = "[" + id + "]";
-        currentStreamVariable = placeHolder;
+        if (!values.isEmpty()) {
+            addValue(new SolrConditionNode.OperandValue(Operand.streamVariable(id, type)));
+        } else {
+            // a condition on the stream attributes only is evaluated by siddhi and passed as a boolean parameter
+            addNode(new SolrConditionNode.StreamPredicate(id));
+        }
     }
 
     @Override
@@ -331,10 +616,11 @@ public class SolrConditionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
-        if (isBeginCompareRightOperand) {
-            isStoreVariableOnRight = true;
+        if (values.isEmpty()) {
+            throw new SolrConditionVisitorException("Store attribute '" + attributeName + "' is not a valid " +
+                    "condition in Solr Store");
         }
-        currentStoreVariable = attributeName;
+        addValue(new SolrConditionNode.FieldValue(attributeName, type));
     }
 
     @Override
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.core.table.record.RecordIterator;
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.common.params.CommonParams;
+import org.wso2.extension.siddhi.store.solr.config.CollectionConfiguration;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrIteratorException;
+import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents the iterator which streams the matching solr documents through the solr /export handler.
+ * The documents are read one by one from a sorted stream, so the client memory does not grow with the result size.
+ * All the table attributes must have docValues enabled to be exported. The streams share the solr clients of the
+ * given client cache, which is owned by the table.
+ * <p>
+ * Only the finds with a condition independent of the events are exported. The selections of the store queries are
+ * read through the /select handler.
+ */
+public class SolrExportRecordIterator implements RecordIterator<Object[]> {
+
+    private static final String EXPORT_HANDLER = "/export";
+    private static final String SEARCH_FUNCTION = "search";
+    private List<Attribute> attributes;
+    private CloudSolrStream solrStream;
+    private Tuple nextTuple;
+    private boolean opened;
+    private boolean exhausted;
+
+    /**
+     * Creates the iterator streaming the documents matching the given condition.
+     *
+     * @param condition       the resolved condition
+     * @param queryParameters the request parameters dereferenced by the condition
+     * @param sort            the sort of the exported stream, on docValues fields
+     * @param config          the configuration of the collection
+     * @param attributes      the table attributes
+     * @param solrClientCache the cache of the solr clients the stream is read through
+     */
+    public SolrExportRecordIterator(String condition, Map<String, String> queryParameters, String sort,
+                                    CollectionConfiguration config, List<Attribute> attributes,
+                                    SolrClientCache solrClientCache) {
+        this.attributes = attributes;
+        Map<String, String> params = new HashMap<>(queryParameters);
+        params.put(CommonParams.Q, condition);
+        params.put(CommonParams.QT, EXPORT_HANDLER);
+        params.put(CommonParams.FL, getFieldList(attributes));
+        params.put(CommonParams.SORT, sort);
+        String collection = SolrTableUtils.getCollectionNameWithDomainName(config.getDomainName(),
+                config.getCollectionName());
+        // the parameters are given as expression operands, so they are passed to solr as they are without parsing
+        StreamExpression expression = new StreamExpression(SEARCH_FUNCTION).withParameter(collection);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            expression.addParameter(new StreamExpressionNamedParameter(param.getKey(), param.getValue()));
+        }
+        StreamFactory streamFactory = new StreamFactory().withCollectionZkHost(collection,
+                config.getSolrServerUrl());
+        try {
+            this.solrStream = new CloudSolrStream(expression, streamFactory);
+        } catch (IOException e) {
+            throw new SolrIteratorException("Error while creating the export stream for collection: " +
+                    collection + ", error: " + e.getMessage(), e);
+        }
+        StreamContext streamContext = new StreamContext();
+        streamContext.setSolrClientCache(solrClientCache);
+        this.solrStream.setStreamContext(streamContext);
+    }
+
+    private static String getFieldList(List<Attribute> attributes) {
+        StringBuilder fieldList = new StringBuilder();
+        for (Attribute attribute : attributes) {
+            if (fieldList.length() > 0) {
+                fieldList.append(',');
+            }
+            fieldList.append(attribute.getName());
+        }
+        return fieldList.toString();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (exhausted) {
+            return false;
+        }
+        if (nextTuple != null) {
+            return true;
+        }
+        try {
+            if (!opened) {
+                solrStream.open();
+                opened = true;
+            }
+            Tuple tuple = solrStream.read();
+            if (tuple.EOF) {
+                exhausted = true;
+                return false;
+            }
+            nextTuple = tuple;
+            return true;
+        } catch (IOException e) {
+            throw new SolrIteratorException("Error while calling hasNext(): " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] record = new Object[attributes.size()];
+        for (int i = 0; i < record.length; i++) {
+            Attribute attribute = attributes.get(i);
+            record[i] = SolrTableUtils.convertToAttributeType(nextTuple.get(attribute.getName()), attribute.getType());
+        }
+        nextTuple = null;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        exhausted = true;
+        if (opened) {
+            solrStream.close();
+        }
+    }
+}
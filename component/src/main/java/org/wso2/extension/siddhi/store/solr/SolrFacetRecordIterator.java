@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.core.table.record.RecordIterator;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class represents the iterator over the records aggregated by solr, which are read in a single response.
+ */
+public class SolrFacetRecordIterator implements RecordIterator<Object[]> {
+
+    private Iterator<Object[]> records;
+
+    public SolrFacetRecordIterator(List<Object[]> records) {
+        this.records = records.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return records.hasNext();
+    }
+
+    @Override
+    public Object[] next() {
+        return records.next();
+    }
+
+    @Override
+    public void close() {
+        //Not applicable
+    }
+}
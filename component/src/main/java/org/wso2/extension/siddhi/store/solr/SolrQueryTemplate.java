@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr;
+
+import org.apache.solr.client.solrj.util.ClientUtils;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a compiled solr query, made of literal segments and the parameter slots between them.
+ * The template is filled with the parameters of an event in a single pass, escaping each value according to the
+ * place of its slot in the query. Slots bound to a request parameter are rendered as a $name dereference, with the
+ * value passed as a request parameter, so that the query string stays the same for all the events.
+ */
+public class SolrQueryTemplate {
+
+    private static final int MAX_CACHED_BUILDER_CAPACITY = 8192;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+    private final String[] segments;
+    private final Slot[] slots;
+    private final String query;
+
+    private SolrQueryTemplate(String[] segments, Slot[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        StringBuilder builder = new StringBuilder(segments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].requestParameterName != null) {
+                builder.append('$').append(slots[i].requestParameterName);
+            } else {
+                builder.append('[').append(slots[i].parameterId).append(']');
+            }
+            builder.append(segments[i + 1]);
+        }
+        this.query = builder.toString();
+    }
+
+    public boolean isEmpty() {
+        return slots.length == 0 && segments[0].isEmpty();
+    }
+
+    /**
+     * Returns whether the query depends on the parameters of the events, rather than only on constants.
+     */
+    public boolean isParameterized() {
+        for (Slot slot : slots) {
+            if (slot.parameterId != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills all the parameter slots inline with the given parameter values, for the requests which can not carry
+     * request parameters, such as delete by query.
+     *
+     * @param parameters the parameter values by the parameter id
+     * @return the resolved query
+     */
+    public String fill(Map<String, Object> parameters) {
+        return fill(parameters, null);
+    }
+
+    /**
+     * Fills the parameter slots with the given parameter values. The values of the slots bound to a request
+     * parameter are put to the given request parameters instead of the query.
+     *
+     * @param parameters        the parameter values by the parameter id
+     * @param requestParameters the request parameters to be sent with the query, or null to fill all the slots inline
+     * @return the resolved query
+     */
+    public String fill(Map<String, Object> parameters, Map<String, String> requestParameters) {
+        if (slots.length == 0) {
+            return segments[0];
+        }
+        StringBuilder builder = BUILDER.get();
+        if (builder.capacity() > MAX_CACHED_BUILDER_CAPACITY) {
+            builder = new StringBuilder();
+            BUILDER.set(builder);
+        }
+        builder.setLength(0);
+        builder.append(segments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            Object parameter = slot.parameterId != null ? parameters.get(slot.parameterId) : slot.constant;
+            String value = slot.valueSeparator != null ? joinValues(parameter, slot.valueSeparator) :
+                    String.valueOf(parameter);
+            if (slot.requestParameterName != null && requestParameters != null) {
+                builder.append('$').append(slot.requestParameterName);
+                requestParameters.put(slot.requestParameterName, value);
+            } else {
+                slot.escaping.append(builder, value);
+            }
+            builder.append(segments[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /*
+    Joins the values of a collection or an array parameter, so that it can be placed in a single slot. Any other
+    parameter is taken as a single value.
+    */
+    private static String joinValues(Object parameter, String separator) {
+        StringBuilder builder = new StringBuilder();
+        if (parameter instanceof Collection) {
+            for (Object value : (Collection<?>) parameter) {
+                if (builder.length() > 0) {
+                    builder.append(separator);
+                }
+                builder.append(value);
+            }
+        } else if (parameter != null && parameter.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(parameter); i++) {
+                if (i > 0) {
+                    builder.append(separator);
+                }
+                builder.append(Array.get(parameter, i));
+            }
+        } else {
+            builder.append(parameter);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the query with the parameter slots shown as [id] placeholders or $name dereferences.
+     */
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * Represents how a value is escaped when it is placed in the query.
+     */
+    public enum Escaping {
+        /**
+         * The value is placed as it is, such as the values of the set expressions.
+         */
+        NONE {
+            @Override
+            void append(StringBuilder builder, String value) {
+                builder.append(value);
+            }
+        },
+        /**
+         * The value is a bare term, such as a range endpoint, so all the query syntax characters are escaped.
+         */
+        TERM {
+            @Override
+            void append(StringBuilder builder, String value) {
+                builder.append(ClientUtils.escapeQueryChars(value));
+            }
+        },
+        /**
+         * The value is a number, such as a range endpoint of a numeric field, so it is placed as it is. The values
+         * which are not numbers are escaped as terms.
+         */
+        NUMBER {
+            @Override
+            void append(StringBuilder builder, String value) {
+                if (isNumber(value)) {
+                    builder.append(value);
+                } else {
+                    TERM.append(builder, value);
+                }
+            }
+        },
+        /**
+         * The value is a local parameter value, so it is single quoted, escaping the quotes and the backslashes.
+         */
+        LOCAL_PARAM {
+            @Override
+            void append(StringBuilder builder, String value) {
+                builder.append('\'');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\'' || c == '\\') {
+                        builder.append('\\');
+                    }
+                    builder.append(c);
+                }
+                builder.append('\'');
+            }
+        },
+        /**
+         * The value is a boolean computed on the stream side, placed as a query matching all the documents when it
+         * is true and none of them otherwise.
+         */
+        PREDICATE {
+            @Override
+            void append(StringBuilder builder, String value) {
+                builder.append(Boolean.parseBoolean(value) ? "*:*" : "(*:* -*:*)");
+            }
+        };
+
+        abstract void append(StringBuilder builder, String value);
+
+        private static boolean isNumber(String value) {
+            if (value.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (!(c >= '0' && c <= '9') && c != '.' && c != '-' && c != '+' && c != 'E' && c != 'e') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String escape(String value) {
+            StringBuilder builder = new StringBuilder(value.length());
+            append(builder, value);
+            return builder.toString();
+        }
+    }
+
+    private static class Slot {
+        private final String parameterId;
+        private final Object constant;
+        private final Escaping escaping;
+        private final String requestParameterName;
+        private final String valueSeparator;
+
+        private Slot(String parameterId, Object constant, Escaping escaping, String requestParameterName,
+                     String valueSeparator) {
+            this.parameterId = parameterId;
+            this.constant = constant;
+            this.escaping = escaping;
+            this.requestParameterName = requestParameterName;
+            this.valueSeparator = valueSeparator;
+        }
+    }
+
+    /**
+     * Builder class for creating the SolrQueryTemplate objects.
+     */
+    public static class Builder {
+        private StringBuilder segment = new StringBuilder();
+        private List<String> segments = new ArrayList<>();
+        private List<Slot> slots = new ArrayList<>();
+
+        public Builder() {
+
+        }
+
+        public Builder append(String literal) {
+            segment.append(literal);
+            return this;
+        }
+
+        public Builder appendParameter(String parameterId, Escaping escaping) {
+            return appendSlot(new Slot(parameterId, null, escaping, null, null));
+        }
+
+        /**
+         * Appends a local parameter value which is passed as the given request parameter, taking the value of the
+         * given parameter id, or the given constant when the parameter id is null.
+         */
+        public Builder appendRequestParameter(String requestParameterName, String parameterId, Object constant) {
+            return appendRequestParameter(requestParameterName, parameterId, constant, Escaping.LOCAL_PARAM);
+        }
+
+        /**
+         * Appends a value which is passed as the given request parameter, placing it inline with the given escaping
+         * when the template is filled without request parameters.
+         */
+        public Builder appendRequestParameter(String requestParameterName, String parameterId, Object constant,
+                                              Escaping inlineEscaping) {
+            return appendSlot(new Slot(parameterId, constant, inlineEscaping, requestParameterName, null));
+        }
+
+        /**
+         * Appends a local parameter value which is passed as the given request parameter, taking the values of the
+         * collection or the array of the given parameter id, joined with the given separator.
+         */
+        public Builder appendMultiValuedRequestParameter(String requestParameterName, String parameterId,
+                                                         String separator) {
+            return appendSlot(new Slot(parameterId, null, Escaping.LOCAL_PARAM, requestParameterName, separator));
+        }
+
+        private Builder appendSlot(Slot slot) {
+            segments.add(segment.toString());
+            segment.setLength(0);
+            slots.add(slot);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return segments.isEmpty() && segment.length() == 0;
+        }
+
+        /**
+         * Builds the template, removing the leading and the trailing whitespaces of the query.
+         */
+        public SolrQueryTemplate build() {
+            List<String> allSegments = new ArrayList<>(segments);
+            allSegments.add(segment.toString());
+            int last = allSegments.size() - 1;
+            allSegments.set(0, trimLeading(allSegments.get(0)));
+            allSegments.set(last, trimTrailing(allSegments.get(last)));
+            return new SolrQueryTemplate(allSegments.toArray(new String[allSegments.size()]),
+                    slots.toArray(new Slot[slots.size()]));
+        }
+
+        private static String trimLeading(String value) {
+            int index = 0;
+            while (index < value.length() && Character.isWhitespace(value.charAt(index))) {
+                index++;
+            }
+            return value.substring(index);
+        }
+
+        private static String trimTrailing(String value) {
+            int index = value.length();
+            while (index > 0 && Character.isWhitespace(value.charAt(index - 1))) {
+                index--;
+            }
+            return value.substring(0, index);
+        }
+    }
+}
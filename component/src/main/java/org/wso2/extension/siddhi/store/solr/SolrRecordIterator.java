@@ -20,107 +20,414 @@ package org.wso2.extension.siddhi.store.solr;
 
 import io.siddhi.core.table.record.RecordIterator;
 import io.siddhi.query.api.definition.Attribute;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
-import org.wso2.extension.siddhi.store.solr.config.CollectionConfiguration;
-import org.wso2.extension.siddhi.store.solr.exceptions.SolrClientServiceException;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.wso2.extension.siddhi.store.solr.beans.SolrSchemaField;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrIteratorException;
 import org.wso2.extension.siddhi.store.solr.impl.SiddhiSolrClient;
-import org.wso2.extension.siddhi.store.solr.impl.SolrClientServiceImpl;
+import org.wso2.extension.siddhi.store.solr.utils.SolrTableConstants;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
- * This class represents the iterator which streams a set solr documents
+ * This class represents the iterator which streams a set solr documents. The documents are paged using a cursor
+ * sorted on the unique key, so that each page costs the same regardless of how deep it is in the result. Offset
+ * based paging is used when cursor paging is disabled or rejected by solr.
+ * <p>
+ * The iterator is meant to be used by a single consumer thread and is not thread safe.
  */
 public class SolrRecordIterator implements RecordIterator<Object[]> {
 
+    private static final Log log = LogFactory.getLog(SolrRecordIterator.class);
+    private static final long PREFETCH_STALL_TIMEOUT_MS = 60000;
+    private static final long PREFETCH_POLL_INTERVAL_MS = 100;
     private SiddhiSolrClient solrClient;
     private int batchSize;
-    private List<Attribute> attributes;
+    private String[] attributeNames;
     private SolrDocumentList solrDocuments;
-    private Iterator<SolrDocument> solrDocumentIterator;
+    private int position;
+    private boolean exhausted;
     private SolrQuery query;
     private String solrCollection;
     private int start;
     private int count;
+    private long remaining;
+    private boolean cursorPaging;
+    private String cursorMark;
+    private boolean cursorSortAdded;
+    private boolean lastPage;
+    private boolean fetchedLastPage;
+    private ExecutorService prefetchExecutor;
+    private BlockingQueue<Page> prefetchedPages;
+    private Future<?> prefetchTask;
+    private long prefetchStallTimeoutMs;
+    private volatile boolean prefetchStopped;
+    private volatile Page stalledPage;
+    private volatile boolean closed;
 
-    public SolrRecordIterator(String condition, SolrClientServiceImpl service, CollectionConfiguration config, int
-            batchSize, List<Attribute> attributes) throws SolrClientServiceException {
-        this.batchSize = batchSize;
-        this.attributes = attributes;
-        this.solrClient = service.getSolrServiceClientByURL(config.getSolrServerUrl());
-        this.solrCollection = config.getCollectionName();
-        this.query = new SolrQuery(condition);
-        this.start = 0;
+    private SolrRecordIterator(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.attributeNames = getAttributeNames(builder.attributes);
+        this.solrClient = builder.solrClient;
+        this.solrCollection = builder.collection;
+        this.query = builder.query;
+        this.query.setFields(builder.fields != null ? builder.fields : attributeNames);
+        this.start = (int) builder.offset;
         this.count = batchSize;
+        this.remaining = builder.limit < 0 ? Long.MAX_VALUE : builder.limit;
+        // a cursor can not be started at an offset, so the documents are paged by offset when an offset is given
+        this.cursorPaging = builder.cursorPaging && builder.offset == 0;
+        if (this.cursorPaging) {
+            this.cursorMark = CursorMarkParams.CURSOR_MARK_START;
+            if (!isSortedById(query)) {
+                this.query.addSort(SolrSchemaField.FIELD_ID, SolrQuery.ORDER.asc);
+                this.cursorSortAdded = true;
+            }
+        }
+        if (remaining == 0) {
+            this.solrDocuments = new SolrDocumentList();
+            this.lastPage = true;
+            this.fetchedLastPage = true;
+        }
+        if (builder.prefetchExecutor != null && builder.prefetchDepth > 0) {
+            this.prefetchExecutor = builder.prefetchExecutor;
+            this.prefetchedPages = new ArrayBlockingQueue<>(builder.prefetchDepth);
+            this.prefetchStallTimeoutMs = builder.prefetchStallTimeoutMs;
+        }
+    }
+
+    /**
+     * Creates an iterator over documents which are already fetched, such as the result of a real-time get.
+     */
+    public SolrRecordIterator(SolrDocumentList documents, List<Attribute> attributes) {
+        this.attributeNames = getAttributeNames(attributes);
+        this.solrDocuments = documents;
+        this.lastPage = true;
+        this.fetchedLastPage = true;
+    }
+
+    /*
+    A cursor requires the sort to end with the unique key, which also keeps the order of the documents with the same
+    sort values stable between the pages.
+    */
+    private static boolean isSortedById(SolrQuery query) {
+        for (SolrQuery.SortClause sort : query.getSorts()) {
+            if (SolrSchemaField.FIELD_ID.equals(sort.getItem())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] getAttributeNames(List<Attribute> attributes) {
+        String[] names = new String[attributes.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = attributes.get(i).getName();
+        }
+        return names;
     }
 
     @Override
     public void close() throws IOException {
+        closed = true;
+        exhausted = true;
+        if (prefetchTask != null) {
+            prefetchTask.cancel(true);
+            prefetchedPages.clear();
+            stalledPage = null;
+        }
         this.solrClient = null;
     }
 
     @Override
     public boolean hasNext() {
-        synchronized (this) {
+        while (solrDocuments == null || position >= solrDocuments.size()) {
+            if (exhausted) {
+                return false;
+            }
+            if (solrDocuments != null && lastPage) {
+                exhausted = true;
+                solrDocuments = null;
+                return false;
+            }
             try {
-                if (solrDocumentIterator != null && solrDocuments != null) {
-                    if (solrDocumentIterator.hasNext()) {
-                        return true;
-                    } else {
-                        if (solrDocuments.size() < batchSize) {
-                            return false;
-                        } else {
-                            return readBatches();
-                        }
-                    }
-                } else {
-                    return readBatches();
-                }
+                readBatch();
             } catch (SolrServerException | IOException | SolrException e) {
                 throw new SolrIteratorException("Error while calling hasNext(): " + e.getMessage(), e);
             }
         }
+        return true;
+    }
+
+    private void readBatch() throws SolrServerException, IOException {
+        if (prefetchExecutor != null) {
+            readPrefetchedBatch();
+        } else {
+            solrDocuments = fetchPage();
+            lastPage = fetchedLastPage;
+        }
+        position = 0;
+    }
+
+    private void readPrefetchedBatch() throws SolrServerException, IOException {
+        if (prefetchTask == null) {
+            prefetchTask = prefetchExecutor.submit(this::prefetchPages);
+        }
+        Page page;
+        try {
+            page = takePrefetchedPage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolrIteratorException("Interrupted while waiting for the next page of collection: " +
+                    solrCollection, e);
+        }
+        if (page == null) {
+            // the prefetching has stopped while the consumer was away, so the rest is read from this thread
+            prefetchExecutor = null;
+            solrDocuments = fetchPage();
+            lastPage = fetchedLastPage;
+            return;
+        }
+        if (page.error instanceof SolrServerException) {
+            throw (SolrServerException) page.error;
+        } else if (page.error instanceof IOException) {
+            throw (IOException) page.error;
+        } else if (page.error instanceof RuntimeException) {
+            throw (RuntimeException) page.error;
+        }
+        solrDocuments = page.documents;
+        lastPage = page.last;
+    }
+
+    /*
+    Takes the next page fetched ahead, or returns null when the prefetching has stopped and all the pages it fetched
+    have been taken.
+    */
+    private Page takePrefetchedPage() throws InterruptedException {
+        while (true) {
+            Page page = prefetchedPages.poll(PREFETCH_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (page != null) {
+                return page;
+            }
+            if (prefetchStopped) {
+                page = prefetchedPages.poll();
+                if (page == null) {
+                    page = stalledPage;
+                    stalledPage = null;
+                }
+                return page;
+            }
+        }
+    }
+
+    /*
+    An iterator which is dropped without being closed, such as when the consumer stops after a limit, never takes
+    the pages fetched ahead. The task gives up when a page is not taken within the stall timeout, instead of holding
+    a thread of the executor, and leaves the page for the consumer in case it comes back.
+    */
+    private void prefetchPages() {
+        boolean last = false;
+        while (!last && !closed) {
+            Page page;
+            try {
+                SolrDocumentList documents = fetchPage();
+                last = fetchedLastPage;
+                page = new Page(documents, last, null);
+            } catch (SolrServerException | IOException | RuntimeException e) {
+                last = true;
+                page = new Page(null, true, e);
+            }
+            try {
+                if (!prefetchedPages.offer(page, prefetchStallTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    stalledPage = page;
+                    prefetchStopped = true;
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
     }
 
-    private boolean readBatches() throws SolrServerException, IOException {
-        query.setStart(start);
+    private SolrDocumentList fetchPage() throws SolrServerException, IOException {
+        count = (int) Math.min(batchSize, remaining);
+        SolrDocumentList documents;
+        if (cursorPaging) {
+            documents = readCursorBatch();
+        } else {
+            query.setStart(start);
+            query.setRows(count);
+            start += count;
+            documents = solrClient.query(solrCollection, query).getResults();
+        }
+        remaining -= documents.size();
+        fetchedLastPage = fetchedLastPage || documents.size() < count || remaining <= 0;
+        return documents;
+    }
+
+    private SolrDocumentList readCursorBatch() throws SolrServerException, IOException {
         query.setRows(count);
-        start += count;
-        solrDocuments = solrClient.query(solrCollection, query).getResults();
-        solrDocumentIterator = solrDocuments.iterator();
-        return hasNext();
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        QueryResponse response;
+        try {
+            response = solrClient.query(solrCollection, query);
+        } catch (SolrException e) {
+            if (CursorMarkParams.CURSOR_MARK_START.equals(cursorMark) &&
+                    e.code() == SolrException.ErrorCode.BAD_REQUEST.code) {
+                log.warn("Cursor based paging is not supported for collection: " + solrCollection + ", falling " +
+                        "back to offset based paging: " + e.getMessage());
+                cursorPaging = false;
+                query.remove(CursorMarkParams.CURSOR_MARK_PARAM);
+                if (cursorSortAdded) {
+                    query.removeSort(SolrSchemaField.FIELD_ID);
+                }
+                query.setStart(start);
+                start += count;
+                return solrClient.query(solrCollection, query).getResults();
+            }
+            throw e;
+        }
+        String nextCursorMark = response.getNextCursorMark();
+        fetchedLastPage = nextCursorMark == null || nextCursorMark.equals(cursorMark);
+        cursorMark = nextCursorMark;
+        return response.getResults();
     }
 
     @Override
     public Object[] next() {
-        synchronized (this) {
-            List<Object> fieldValues = new ArrayList<>();
-            if (hasNext() && solrDocumentIterator != null) {
-                SolrDocument solrDocument = solrDocumentIterator.next();
-                for (Attribute attribute : attributes) {
-                    Object fieldValue = solrDocument.getFieldValue(attribute.getName());
-                    fieldValues.add(fieldValue);
-                }
-            }
-            return fieldValues.toArray();
+        if (!hasNext()) {
+            throw new NoSuchElementException();
         }
+        SolrDocument solrDocument = solrDocuments.get(position++);
+        Object[] record = new Object[attributeNames.length];
+        for (int i = 0; i < record.length; i++) {
+            record[i] = solrDocument.getFieldValue(attributeNames[i]);
+        }
+        return record;
     }
 
     public SolrDocument nextDocument() {
-        synchronized (this) {
-            if (hasNext() && solrDocumentIterator != null) {
-                return solrDocumentIterator.next();
-            } else {
-                return null;
-            }
+        if (hasNext()) {
+            return solrDocuments.get(position++);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Builder class for creating the SolrRecordIterator objects which search a collection.
+     */
+    public static class Builder {
+        private SolrQuery query;
+        private SiddhiSolrClient solrClient;
+        private String collection;
+        private List<Attribute> attributes;
+        private int batchSize = Integer.parseInt(SolrTableConstants.DEFAULT_READ_ITERATOR_BATCH_SIZE);
+        private boolean cursorPaging = true;
+        private String[] fields;
+        private long offset;
+        private long limit = -1;
+        private ExecutorService prefetchExecutor;
+        private int prefetchDepth;
+        private long prefetchStallTimeoutMs = PREFETCH_STALL_TIMEOUT_MS;
+
+        /**
+         * Creates a builder for the iterator reading the documents matching the given search request.
+         *
+         * @param query      the search request, which may carry filter queries, sorts and request parameters
+         * @param solrClient the client the collection is searched with
+         * @param collection the name of the collection
+         * @param attributes the attributes the records are read as
+         */
+        public Builder(SolrQuery query, SiddhiSolrClient solrClient, String collection, List<Attribute> attributes) {
+            this.query = query;
+            this.solrClient = solrClient;
+            this.collection = collection;
+            this.attributes = attributes;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder cursorPaging(boolean cursorPaging) {
+            this.cursorPaging = cursorPaging;
+            return this;
+        }
+
+        /**
+         * Only fetches the given fields of the matching documents, instead of the attributes.
+         */
+        public Builder fields(String[] fields) {
+            this.fields = fields;
+            return this;
+        }
+
+        /**
+         * Only reads the given window of the sorted result.
+         *
+         * @param offset the number of documents skipped from the start of the result
+         * @param limit  the maximum number of documents read, or a negative value to read all the documents
+         */
+        public Builder window(long offset, long limit) {
+            this.offset = offset;
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Fetches the next pages on the given executor while the current page is being consumed.
+         *
+         * @param executor the executor which fetches the pages, or null to fetch them from the consumer
+         * @param depth    the maximum number of pages fetched ahead of the consumer
+         */
+        public Builder prefetch(ExecutorService executor, int depth) {
+            this.prefetchExecutor = executor;
+            this.prefetchDepth = depth;
+            return this;
+        }
+
+        /**
+         * Stops fetching the pages ahead when the consumer does not take a page within the given time.
+         */
+        public Builder prefetchStallTimeout(long timeoutMs) {
+            this.prefetchStallTimeoutMs = timeoutMs;
+            return this;
+        }
+
+        public SolrRecordIterator build() {
+            return new SolrRecordIterator(this);
+        }
+    }
+
+    /**
+     * A page of documents fetched ahead of the consumer, or the error occurred while fetching it.
+     */
+    private static class Page {
+        private final SolrDocumentList documents;
+        private final boolean last;
+        private final Exception error;
+
+        private Page(SolrDocumentList documents, boolean last, Exception error) {
+            this.documents = documents;
+            this.last = last;
+            this.error = error;
         }
     }
 }
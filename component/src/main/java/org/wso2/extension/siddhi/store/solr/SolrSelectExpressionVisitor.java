@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.wso2.extension.siddhi.store.solr;
+
+import io.siddhi.core.exception.QueryableRecordTableException;
+import io.siddhi.core.table.record.BaseExpressionVisitor;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.expression.condition.Compare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents the visitor of the select, group by and order by expressions of the queries on Solr record
+ * tables. Only the plain table attributes and the aggregations of table attributes can be computed by solr, so any
+ * other expression makes the query to be executed in memory.
+ */
+public class SolrSelectExpressionVisitor extends BaseExpressionVisitor {
+
+    private static final String COUNT_FUNCTION = "count";
+    private static final String DISTINCT_COUNT_FUNCTION = "distinctCount";
+    private static final String PERCENTILE_FUNCTION = "percentile";
+    private static final String MATH_NAMESPACE = "math";
+    private boolean approximateDistinctCount;
+    private boolean singleShard;
+    private Attribute attribute;
+    private String aggregateFunction;
+    private List<Object> constantArguments = new ArrayList<>();
+    private String unsupportedExpression;
+
+    public SolrSelectExpressionVisitor() {
+        this(false, false);
+    }
+
+    /**
+     * Creates a visitor for the aggregations of a collection.
+     *
+     * @param approximateDistinctCount whether the distinct counts are computed with the hyper log log estimate of
+     *                                 solr, which uses a bounded amount of memory, instead of the exact count
+     * @param singleShard              whether the collection has a single shard, since solr only counts the unique
+     *                                 values exactly within a shard
+     */
+    public SolrSelectExpressionVisitor(boolean approximateDistinctCount, boolean singleShard) {
+        this.approximateDistinctCount = approximateDistinctCount;
+        this.singleShard = singleShard;
+    }
+
+    /**
+     * Returns the table attribute the visited expression refers to.
+     *
+     * @return the table attribute
+     * @throws QueryableRecordTableException if the expression is not a plain table attribute
+     */
+    public Attribute returnAttribute() {
+        if (unsupportedExpression != null || attribute == null || aggregateFunction != null) {
+            throw new QueryableRecordTableException((unsupportedExpression != null ? unsupportedExpression :
+                    "Expression") + " can not be pushed down to Solr Store, only the table attributes are supported.");
+        }
+        return attribute;
+    }
+
+    public boolean isAggregation() {
+        return aggregateFunction != null;
+    }
+
+    /**
+     * Returns the JSON facet function which computes the visited aggregation.
+     *
+     * @return the facet function, or null when the aggregation is the count of the bucket
+     * @throws QueryableRecordTableException if the expression is not an aggregation solr can compute
+     */
+    public String returnFacetFunction() {
+        if (unsupportedExpression == null && aggregateFunction != null && !COUNT_FUNCTION.equals(aggregateFunction)
+                && attribute == null) {
+            unsupported("Function '" + aggregateFunction + "' without a table attribute");
+        }
+        if (unsupportedExpression != null || aggregateFunction == null) {
+            throw new QueryableRecordTableException((unsupportedExpression != null ? unsupportedExpression :
+                    "Expression") + " can not be pushed down to Solr Store, only the aggregations of the table " +
+                    "attributes are supported.");
+        }
+        if (COUNT_FUNCTION.equals(aggregateFunction)) {
+            return null;
+        } else if (DISTINCT_COUNT_FUNCTION.equals(aggregateFunction) && approximateDistinctCount) {
+            return "hll(" + attribute.getName() + ")";
+        } else if (DISTINCT_COUNT_FUNCTION.equals(aggregateFunction) && !singleShard) {
+            // the unique values of each shard are only sent in full up to a small number, and estimated beyond it
+            throw new QueryableRecordTableException("Function 'distinctCount' can only be pushed down to Solr " +
+                    "Store exactly when the collection has a single shard, or approximately when " +
+                    "'facet.approximate' is enabled.");
+        } else if (PERCENTILE_FUNCTION.equals(aggregateFunction)) {
+            if (constantArguments.size() != 1 || !(constantArguments.get(0) instanceof Number)) {
+                throw new QueryableRecordTableException("Function 'math:percentile' can only be pushed down to " +
+                        "Solr Store with a table attribute and a constant percentile.");
+            }
+            return PERCENTILE_FUNCTION + "(" + attribute.getName() + "," + constantArguments.get(0) + ")";
+        }
+        return getFacetFunction(aggregateFunction) + "(" + attribute.getName() + ")";
+    }
+
+    /*
+    The count of the events is the count of the documents in the facet bucket, so it does not need a function.
+    */
+    private static String getFacetFunction(String functionName) {
+        switch (functionName) {
+            case "sum":
+            case "avg":
+            case "min":
+            case "max":
+                return functionName;
+            case DISTINCT_COUNT_FUNCTION:
+                return "unique";
+            case PERCENTILE_FUNCTION:
+                return PERCENTILE_FUNCTION;
+            default:
+                return null;
+        }
+    }
+
+    private void unsupported(String expression) {
+        if (unsupportedExpression == null) {
+            unsupportedExpression = expression;
+        }
+    }
+
+    @Override
+    public void beginVisitAnd() {
+        unsupported("And");
+    }
+
+    @Override
+    public void endVisitAnd() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitAndLeftOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitAndLeftOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitAndRightOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitAndRightOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitOr() {
+        unsupported("Or");
+    }
+
+    @Override
+    public void endVisitOr() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitOrLeftOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitOrLeftOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitOrRightOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitOrRightOperand() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitNot() {
+        unsupported("Not");
+    }
+
+    @Override
+    public void endVisitNot() {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitCompare(Compare.Operator operator) {
+        unsupported("'" + operator + "'");
+    }
+
+    @Override
+    public void endVisitCompare(Compare.Operator operator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitCompareLeftOperand(Compare.Operator operator) {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitCompareLeftOperand(Compare.Operator operator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitCompareRightOperand(Compare.Operator operator) {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitCompareRightOperand(Compare.Operator operator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitIsNull(String streamId) {
+        unsupported("Null check");
+    }
+
+    @Override
+    public void endVisitIsNull(String streamId) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitIn(String storeId) {
+        unsupported("In");
+    }
+
+    @Override
+    public void endVisitIn(String storeId) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitConstant(Object value, Attribute.Type type) {
+        if (PERCENTILE_FUNCTION.equals(aggregateFunction) && attribute != null) {
+            constantArguments.add(value);
+        } else {
+            unsupported("Constant '" + value + "'");
+        }
+    }
+
+    @Override
+    public void endVisitConstant(Object value, Attribute.Type type) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitMath(MathOperator mathOperator) {
+        unsupported("'" + mathOperator + "'");
+    }
+
+    @Override
+    public void endVisitMath(MathOperator mathOperator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitMathLeftOperand(MathOperator mathOperator) {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitMathLeftOperand(MathOperator mathOperator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitMathRightOperand(MathOperator mathOperator) {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitMathRightOperand(MathOperator mathOperator) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitAttributeFunction(String namespace, String functionName) {
+        boolean builtIn = namespace == null || namespace.isEmpty();
+        // the percentile is not a built in aggregation, it is provided by the siddhi math extension
+        boolean supported = builtIn ? COUNT_FUNCTION.equals(functionName) || (getFacetFunction(functionName) != null
+                && !PERCENTILE_FUNCTION.equals(functionName)) : MATH_NAMESPACE.equals(namespace) &&
+                PERCENTILE_FUNCTION.equals(functionName);
+        if (aggregateFunction != null || attribute != null || !supported) {
+            unsupported("Function '" + (builtIn ? "" : namespace + ":") + functionName + "'");
+        }
+        aggregateFunction = functionName;
+    }
+
+    @Override
+    public void endVisitAttributeFunction(String namespace, String functionName) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitParameterAttributeFunction(int index) {
+        //Not applicable
+    }
+
+    @Override
+    public void endVisitParameterAttributeFunction(int index) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
+        unsupported("Stream attribute '" + attributeName + "'");
+    }
+
+    @Override
+    public void endVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
+        //Not applicable
+    }
+
+    @Override
+    public void beginVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
+        if (attribute != null) {
+            unsupported("Expression on '" + attributeName + "'");
+        } else if (aggregateFunction != null && !COUNT_FUNCTION.equals(aggregateFunction) &&
+                !DISTINCT_COUNT_FUNCTION.equals(aggregateFunction) && !SolrConditionNode.isNumeric(type)) {
+            unsupported("Function '" + aggregateFunction + "' on the non numeric attribute '" + attributeName + "'");
+        }
+        attribute = new Attribute(attributeName, type);
+    }
+
+    @Override
+    public void endVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
+        //Not applicable
+    }
+}
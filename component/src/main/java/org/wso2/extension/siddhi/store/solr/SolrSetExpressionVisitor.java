@@ -21,21 +21,39 @@ package org.wso2.extension.siddhi.store.solr;
 import io.siddhi.core.table.record.BaseExpressionVisitor;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.expression.condition.Compare;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition.Operand;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrConditionVisitorException;
 
 /**
- * This class represents the Condition vistor implementation specific to Solr record tables.
+ * This class represents the Condition vistor implementation specific to Solr record tables. Besides the plain values,
+ * an attribute incremented or decremented by a value, such as 'T.count + 1', is compiled to an 'inc' atomic update.
  */
 public class SolrSetExpressionVisitor extends BaseExpressionVisitor {
 
-    private StringBuilder expression;
+    private SolrQueryTemplate.Builder expression;
+    private String modifier;
+    private String storeAttribute;
+    private Operand operand;
+    private boolean negated;
+    private int operandCount;
 
     public SolrSetExpressionVisitor() {
-        expression = new StringBuilder();
+        expression = new SolrQueryTemplate.Builder();
     }
 
-    public String returnExpression() {
-        return expression.toString().trim();
+    public SolrCompiledSetExpression returnCompiledExpression() {
+        if (modifier == null) {
+            return new SolrCompiledSetExpression(returnTemplate());
+        }
+        if (storeAttribute == null || operand == null) {
+            throw new SolrConditionVisitorException("The '" + modifier + "' update in Solr Store has to be applied " +
+                    "to a table attribute with a stream attribute or a constant.");
+        }
+        return new SolrCompiledSetExpression(modifier, storeAttribute, operand, negated);
+    }
+
+    public SolrQueryTemplate returnTemplate() {
+        return expression.build();
     }
 
     @Override
@@ -165,12 +183,21 @@ public class SolrSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void endVisitConstant(Object value, Attribute.Type type) {
-        expression.append(value.toString());
+        if (modifier != null) {
+            visitOperand(Operand.constant(value, type));
+        } else {
+            expression.append(value.toString());
+        }
     }
 
     @Override
     public void beginVisitMath(MathOperator mathOperator) {
-        throw new SolrConditionVisitorException("'" + mathOperator + "' not supported at set in Solr Store ");
+        if (modifier != null || !expression.isEmpty() ||
+                (mathOperator != MathOperator.ADD && mathOperator != MathOperator.SUBTRACT)) {
+            throw new SolrConditionVisitorException("'" + mathOperator + "' not supported at set in Solr Store ");
+        }
+        modifier = SolrCompiledSetExpression.INC_MODIFIER;
+        negated = mathOperator == MathOperator.SUBTRACT;
     }
 
     @Override
@@ -221,7 +248,11 @@ public class SolrSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStreamVariable(String id, String streamId, String attributeName, Attribute.Type type) {
-        expression.append("[" + id + "]");
+        if (modifier != null) {
+            visitOperand(Operand.streamVariable(id, type));
+        } else {
+            expression.appendParameter(id, SolrQueryTemplate.Escaping.NONE);
+        }
     }
 
     @Override
@@ -231,11 +262,39 @@ public class SolrSetExpressionVisitor extends BaseExpressionVisitor {
 
     @Override
     public void beginVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
-        expression.append(attributeName);
+        if (modifier == null) {
+            expression.append(attributeName);
+            return;
+        }
+        // only the addition is commutative, the subtrahend has to follow the attribute
+        if (storeAttribute != null || (negated && operandCount > 0)) {
+            throw new SolrConditionVisitorException("The '" + modifier + "' update of attribute '" + attributeName +
+                    "' is not supported at set in Solr Store ");
+        }
+        if (!isNumeric(type)) {
+            throw new SolrConditionVisitorException("Attribute '" + attributeName + "' of type '" + type +
+                    "' can not be incremented at set in Solr Store ");
+        }
+        storeAttribute = attributeName;
+        operandCount++;
     }
 
     @Override
     public void endVisitStoreVariable(String storeId, String attributeName, Attribute.Type type) {
 
     }
+
+    private void visitOperand(Operand value) {
+        if (operand != null) {
+            throw new SolrConditionVisitorException("The '" + modifier + "' update with more than one value is not " +
+                    "supported at set in Solr Store ");
+        }
+        operand = value;
+        operandCount++;
+    }
+
+    private static boolean isNumeric(Attribute.Type type) {
+        return type == Attribute.Type.INT || type == Attribute.Type.LONG || type == Attribute.Type.FLOAT ||
+                type == Attribute.Type.DOUBLE;
+    }
 }
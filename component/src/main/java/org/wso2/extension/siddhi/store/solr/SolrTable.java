@@ -22,40 +22,65 @@ import io.siddhi.annotation.Example;
 import io.siddhi.annotation.Extension;
 import io.siddhi.annotation.Parameter;
 import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiQueryContext;
 import io.siddhi.core.exception.ConnectionUnavailableException;
-import io.siddhi.core.table.record.AbstractRecordTable;
+import io.siddhi.core.exception.QueryableRecordTableException;
+import io.siddhi.core.executor.VariableExpressionExecutor;
+import io.siddhi.core.table.CompiledUpdateSet;
+import io.siddhi.core.table.Table;
+import io.siddhi.core.table.record.AbstractQueryableRecordTable;
 import io.siddhi.core.table.record.ExpressionBuilder;
 import io.siddhi.core.table.record.RecordIterator;
+import io.siddhi.core.table.record.RecordTableCompiledUpdateSet;
 import io.siddhi.core.util.SiddhiConstants;
 import io.siddhi.core.util.collection.operator.CompiledCondition;
 import io.siddhi.core.util.collection.operator.CompiledExpression;
+import io.siddhi.core.util.collection.operator.CompiledSelection;
+import io.siddhi.core.util.collection.operator.MatchingMetaInfoHolder;
 import io.siddhi.core.util.config.ConfigReader;
 import io.siddhi.query.api.annotation.Annotation;
 import io.siddhi.query.api.annotation.Element;
 import io.siddhi.query.api.definition.Attribute;
 import io.siddhi.query.api.definition.TableDefinition;
+import io.siddhi.query.api.execution.query.output.stream.UpdateSet;
+import io.siddhi.query.api.execution.query.selection.OrderByAttribute;
 import io.siddhi.query.api.util.AnnotationHelper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
 import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocument;
 import org.wso2.extension.siddhi.store.solr.beans.SolrSchema;
 import org.wso2.extension.siddhi.store.solr.beans.SolrSchemaField;
 import org.wso2.extension.siddhi.store.solr.config.CollectionConfiguration;
+import org.wso2.extension.siddhi.store.solr.config.CommitPolicy;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrClientServiceException;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrTableException;
 import org.wso2.extension.siddhi.store.solr.impl.SolrClientServiceImpl;
+import org.wso2.extension.siddhi.store.solr.impl.SolrWriteBehindBuffer;
 import org.wso2.extension.siddhi.store.solr.utils.SolrTableConstants;
 import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class contains the Event table implementation for Solr which is running in the cloud mode.
@@ -86,12 +111,85 @@ import java.util.Map;
                 @Parameter(name = "commit.async",
                         description = "The explicit solr collection schema definition.",
                         type = {DataType.BOOL}, optional = true, defaultValue = "true"),
+                @Parameter(name = "commit.within.ms",
+                        description = "When set to a positive value, the inserts, updates and deletes are sent with " +
+                                "this commitWithin time in milliseconds and solr commits them within that time, " +
+                                "instead of an explicit commit being issued per request when 'commit.async' is " +
+                                "false. The commitWithin time is not used when the value is 0.",
+                        type = {DataType.INT}, optional = true, defaultValue = "0"),
+                @Parameter(name = "commit.soft",
+                        description = "Whether the explicit commits issued when 'commit.async' is false are soft " +
+                                "commits, which make the changes visible without flushing them to stable storage. " +
+                                "A soft commit only makes the changes visible by opening a new searcher, so it can " +
+                                "not be combined with 'commit.open.searcher' set to false.",
+                        type = {DataType.BOOL}, optional = true, defaultValue = "false"),
+                @Parameter(name = "commit.open.searcher",
+                        description = "Whether the explicit commits issued when 'commit.async' is false open a new " +
+                                "searcher. When false, hard commits only make the changes durable and the changes " +
+                                "become visible with the next searcher opened by solr.",
+                        type = {DataType.BOOL}, optional = true, defaultValue = "true"),
                 @Parameter(name = "base.config",
                         description = "The basic configset used to create the collection specific configurations.",
                         type = {DataType.STRING}, optional = true, defaultValue = "Solr_Base_Config"),
                 @Parameter(name = "merge.schema",
                         description = "The basic configset used to create the collection specific configurations.",
-                        type = {DataType.BOOL}, optional = true, defaultValue = "true")
+                        type = {DataType.BOOL}, optional = true, defaultValue = "true"),
+                @Parameter(name = "read.mode",
+                        description = "The way the records matching a find condition are read from solr. 'select' " +
+                                "pages through the results of the /select handler, while 'export' streams them " +
+                                "through the /export handler with constant client memory. The 'export' mode " +
+                                "requires docValues to be enabled for all the table attributes. Only the finds " +
+                                "which scan the table with a condition independent of the events are exported, " +
+                                "the lookups of joins and other event dependent conditions are always served by " +
+                                "the /select handler. The store queries with a projection, order by, limit or " +
+                                "aggregation are pushed down to the /select handler as well, and are not exported.",
+                        type = {DataType.STRING}, optional = true, defaultValue = "select"),
+                @Parameter(name = "read.export.sort",
+                        description = "The sort of the documents streamed in the 'export' read mode, such as " +
+                                "'time asc'. The /export handler requires a sort on docValues fields, so the " +
+                                "documents are sorted ascending by the first table attribute by default.",
+                        type = {DataType.STRING}, optional = true, defaultValue = "<first attribute> asc"),
+                @Parameter(name = "read.prefetch.depth",
+                        description = "The number of result pages fetched ahead in the background while the " +
+                                "current page is being consumed, when reading with the 'select' mode. Prefetching " +
+                                "is disabled when the depth is 0.",
+                        type = {DataType.INT}, optional = true, defaultValue = "0"),
+                @Parameter(name = "facet.approximate",
+                        description = "Computes the 'distinctCount' aggregations of the queries on the table with " +
+                                "the hyper log log estimate of solr, which uses a bounded amount of memory. When " +
+                                "disabled, solr only computes the exact count for a collection with a single " +
+                                "shard, and the aggregation is computed by siddhi otherwise. The " +
+                                "'math:percentile' aggregations are always estimated by solr.",
+                        type = {DataType.BOOL}, optional = true, defaultValue = "false"),
+                @Parameter(name = "condition.object.terms",
+                        description = "Matches the equality of a table attribute with a stream attribute of the " +
+                                "object type as a set membership with the terms query parser, where the stream " +
+                                "attribute carries a collection or an array of the values. Otherwise the value of " +
+                                "the stream attribute is matched as a single value.",
+                        type = {DataType.BOOL}, optional = true, defaultValue = "false"),
+                @Parameter(name = "write.behind",
+                        description = "Enables the write-behind mode, where the inserted events are buffered in a " +
+                                "bounded in-memory queue and written to solr in batches by background flusher " +
+                                "threads, instead of writing them from the calling thread. The reads, updates and " +
+                                "deletes of the table first wait for the buffered inserts to be written, so that " +
+                                "they observe them once solr has made them visible according to the commit options.",
+                        type = {DataType.BOOL}, optional = true, defaultValue = "false"),
+                @Parameter(name = "write.behind.queue.size",
+                        description = "The maximum number of documents buffered in write-behind mode. The inserting " +
+                                "thread is blocked while the buffer is full.",
+                        type = {DataType.INT}, optional = true, defaultValue = "10000"),
+                @Parameter(name = "write.behind.batch.size",
+                        description = "The maximum number of buffered documents written to solr in a single update " +
+                                "request in write-behind mode.",
+                        type = {DataType.INT}, optional = true, defaultValue = "1000"),
+                @Parameter(name = "write.behind.linger.ms",
+                        description = "The maximum time in milliseconds a flusher thread waits for a batch to fill " +
+                                "up before writing it to solr in write-behind mode.",
+                        type = {DataType.LONG}, optional = true, defaultValue = "100"),
+                @Parameter(name = "write.behind.flushers",
+                        description = "The number of background threads writing the buffered documents to solr in " +
+                                "write-behind mode.",
+                        type = {DataType.INT}, optional = true, defaultValue = "1")
         },
         examples = {
                 @Example(
@@ -103,29 +201,70 @@ import java.util.Map;
                         description = "Above example will create a solr collection which has two shards with two " +
                                 "replicas which is named TEST1, using the basic config 'gettingstarted'. it will " +
                                 "have two fields time and date. both fields will be indexed and stored in solr. all " +
-                                "the inserts will be committed asynchronously from the solr server side")
+                                "the inserts will be committed asynchronously from the solr server side"),
+                @Example(
+                        syntax = "@store(type='solr', zookeeper.url='localhost:9983', collection='TEST2', base" +
+                                ".config='gettingstarted', schema='time long stored, date string stored', " +
+                                "write.behind='true', write.behind.batch.size='5000', " +
+                                "write.behind.linger.ms='200')" +
+                                "define table Footable(time long, date string);",
+                        description = "Above example will buffer the inserted events in memory and write them to " +
+                                "the solr collection TEST2 in batches of up to 5000 documents, waiting at most 200 " +
+                                "milliseconds for a batch to fill up.")
         }
 )
 
-public class SolrTable extends AbstractRecordTable {
+public class SolrTable extends AbstractQueryableRecordTable {
 
-    private static final String SET_MODIFIER = "set";
+    private static final Long VERSION_MUST_EXIST = 1L;
+    private static final Long VERSION_MUST_NOT_EXIST = -1L;
+    private static final String TEXT_FIELD_TYPE = "text";
+    private static final String FACET_GROUP_PREFIX = "g";
+    private static final String FACET_STAT_PREFIX = "s";
+    private static final String FACET_COUNT = "count";
+    private static final String FACET_INDEX = "index";
+    private static final String[] ID_FIELD_LIST = new String[]{SolrSchemaField.FIELD_ID};
     private static final Log log = LogFactory.getLog(SolrTable.class);
     private SolrClientServiceImpl solrClientService;
     private List<Attribute> attributes;
+    private String[] attributeFieldList;
+    private String[] updateFieldList;
     private CollectionConfiguration collectionConfig;
     private List<String> primaryKeys;
     private boolean commitAsync;
+    private CommitPolicy commitPolicy;
     private boolean mergeSchema;
     private int readBatchSize;
     private int updateBatchSize;
+    private int deleteQueryBatchSize;
+    private int updateKeyBatchSize;
+    private boolean cursorPaging;
+    private boolean exportReadMode;
+    private String exportSort;
+    private SolrClientCache exportClientCache;
+    private int prefetchDepth;
+    private ExecutorService prefetchExecutor;
+    private boolean approximateAggregation;
+    private boolean objectTermsCondition;
     private SolrSchema solrSchema;
     private boolean schemaUpdatedOnce;
     private boolean connectedOnce;
+    private boolean writeBehind;
+    private int writeBehindQueueSize;
+    private int writeBehindBatchSize;
+    private long writeBehindLingerMs;
+    private int writeBehindFlushers;
+    private SolrWriteBehindBuffer writeBehindBuffer;
 
     @Override
     protected void init(TableDefinition tableDefinition, ConfigReader configReader) {
         this.attributes = tableDefinition.getAttributeList();
+        this.updateFieldList = new String[attributes.size() + 1];
+        for (int i = 0; i < attributes.size(); i++) {
+            this.updateFieldList[i] = attributes.get(i).getName();
+        }
+        this.updateFieldList[attributes.size()] = SolrSchemaField.FIELD_ID;
+        this.attributeFieldList = Arrays.copyOf(updateFieldList, attributes.size());
         this.schemaUpdatedOnce = false;
         this.connectedOnce = false;
         Annotation primaryKeyAnnotation = AnnotationHelper.getAnnotation(SiddhiConstants.ANNOTATION_PRIMARY_KEY,
@@ -149,7 +288,27 @@ public class SolrTable extends AbstractRecordTable {
             String configSet = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_CONFIGSET);
             String commitAsync = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_ASYNC);
             String mergeSchema = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_MERGE_SCHEMA);
-
+            String commitWithinMs = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_WITHIN_MS);
+            String softCommit = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_SOFT);
+            String openSearcher = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_COMMIT_OPEN_SEARCHER);
+            String readMode = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_READ_MODE);
+            String exportSort = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_READ_EXPORT_SORT);
+            String prefetchDepth = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_READ_PREFETCH_DEPTH);
+            String approximateAggregation = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_FACET_APPROXIMATE);
+            String objectTermsCondition = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_CONDITION_OBJECT_TERMS);
+            String writeBehind = storeAnnotation.getElement(SolrTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND);
+            String writeBehindQueueSize = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_WRITE_BEHIND_QUEUE_SIZE);
+            String writeBehindBatchSize = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_WRITE_BEHIND_BATCH_SIZE);
+            String writeBehindLingerMs = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_WRITE_BEHIND_LINGER_MS);
+            String writeBehindFlushers = storeAnnotation.getElement(SolrTableConstants
+                    .ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSHERS);
 
             if (collection == null || collection.trim().isEmpty()) {
                 collection = tableDefinition.getId();
@@ -171,11 +330,71 @@ public class SolrTable extends AbstractRecordTable {
             } else {
                 this.commitAsync = Boolean.parseBoolean(commitAsync);
             }
+            CommitPolicy.Builder commitPolicyBuilder = new CommitPolicy.Builder().commitAsync(this.commitAsync);
+            if (commitWithinMs != null && !commitWithinMs.isEmpty()) {
+                commitPolicyBuilder.commitWithinMs((int) parseNumericOption(tableDefinition.getId(),
+                        SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_WITHIN_MS, commitWithinMs, 0));
+            }
+            if (softCommit != null && !softCommit.isEmpty()) {
+                commitPolicyBuilder.softCommit(Boolean.parseBoolean(softCommit));
+            }
+            if (openSearcher != null && !openSearcher.isEmpty()) {
+                commitPolicyBuilder.openSearcher(Boolean.parseBoolean(openSearcher));
+            }
+            this.commitPolicy = commitPolicyBuilder.build();
+            if (commitPolicy.isSoftCommit() && !commitPolicy.isOpenSearcher()) {
+                throw new SolrTableException("Invalid commit policy for solr table: " + tableDefinition.getId() +
+                        ", '" + SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_SOFT + "' can not be true when '" +
+                        SolrTableConstants.ANNOTATION_ELEMENT_COMMIT_OPEN_SEARCHER + "' is false, since a soft " +
+                        "commit which does not open a searcher has no effect");
+            }
             if (mergeSchema != null && !mergeSchema.isEmpty()) {
                 this.mergeSchema = Boolean.parseBoolean(mergeSchema);
             } else {
                 this.mergeSchema = true;
             }
+            if (readMode == null || readMode.isEmpty() || readMode.equalsIgnoreCase(SolrTableConstants
+                    .READ_MODE_SELECT)) {
+                this.exportReadMode = false;
+            } else if (readMode.equalsIgnoreCase(SolrTableConstants.READ_MODE_EXPORT)) {
+                this.exportReadMode = true;
+            } else {
+                throw new SolrTableException("Invalid read mode: '" + readMode + "' for solr table: " +
+                        tableDefinition.getId() + ", supported modes are '" + SolrTableConstants.READ_MODE_SELECT +
+                        "' and '" + SolrTableConstants.READ_MODE_EXPORT + "'");
+            }
+            if (exportSort == null || exportSort.trim().isEmpty()) {
+                exportSort = attributes.get(0).getName() + " asc";
+            }
+            this.exportSort = exportSort.trim();
+            if (prefetchDepth != null && !prefetchDepth.isEmpty()) {
+                this.prefetchDepth = (int) parseNumericOption(tableDefinition.getId(),
+                        SolrTableConstants.ANNOTATION_ELEMENT_READ_PREFETCH_DEPTH, prefetchDepth, 0);
+            }
+            this.approximateAggregation = approximateAggregation != null &&
+                    Boolean.parseBoolean(approximateAggregation);
+            this.objectTermsCondition = objectTermsCondition != null && Boolean.parseBoolean(objectTermsCondition);
+            this.writeBehind = writeBehind != null && Boolean.parseBoolean(writeBehind);
+            if (writeBehindQueueSize == null || writeBehindQueueSize.isEmpty()) {
+                writeBehindQueueSize = SolrTableConstants.DEFAULT_WRITE_BEHIND_QUEUE_SIZE;
+            }
+            if (writeBehindBatchSize == null || writeBehindBatchSize.isEmpty()) {
+                writeBehindBatchSize = SolrTableConstants.DEFAULT_WRITE_BEHIND_BATCH_SIZE;
+            }
+            if (writeBehindLingerMs == null || writeBehindLingerMs.isEmpty()) {
+                writeBehindLingerMs = SolrTableConstants.DEFAULT_WRITE_BEHIND_LINGER_MS;
+            }
+            if (writeBehindFlushers == null || writeBehindFlushers.isEmpty()) {
+                writeBehindFlushers = SolrTableConstants.DEFAULT_WRITE_BEHIND_FLUSHERS;
+            }
+            this.writeBehindQueueSize = (int) parseNumericOption(tableDefinition.getId(),
+                    SolrTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_QUEUE_SIZE, writeBehindQueueSize, 1);
+            this.writeBehindBatchSize = (int) parseNumericOption(tableDefinition.getId(),
+                    SolrTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_BATCH_SIZE, writeBehindBatchSize, 1);
+            this.writeBehindLingerMs = parseNumericOption(tableDefinition.getId(),
+                    SolrTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_LINGER_MS, writeBehindLingerMs, 0);
+            this.writeBehindFlushers = (int) parseNumericOption(tableDefinition.getId(),
+                    SolrTableConstants.ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSHERS, writeBehindFlushers, 1);
             if (configSet == null || configSet.isEmpty()) {
                 configSet = configReader.readConfig(SolrTableConstants.ANNOTATION_ELEMENT_CONFIGSET,
                         SolrTableConstants.DEFAULT_SOLR_BASE_CONFIG_NAME);
@@ -184,6 +403,12 @@ public class SolrTable extends AbstractRecordTable {
                     .PROPERTY_READ_BATCH_SIZE, SolrTableConstants.DEFAULT_READ_ITERATOR_BATCH_SIZE));
             this.updateBatchSize = Integer.parseInt(configReader.readConfig(SolrTableConstants
                     .PROPERTY_UPDATE_BATCH_SIZE, SolrTableConstants.DEFAULT_UPDATE_BATCH_SIZE));
+            this.deleteQueryBatchSize = Integer.parseInt(configReader.readConfig(SolrTableConstants
+                    .PROPERTY_DELETE_QUERY_BATCH_SIZE, SolrTableConstants.DEFAULT_DELETE_QUERY_BATCH_SIZE));
+            this.updateKeyBatchSize = Integer.parseInt(configReader.readConfig(SolrTableConstants
+                    .PROPERTY_UPDATE_KEY_BATCH_SIZE, SolrTableConstants.DEFAULT_UPDATE_KEY_BATCH_SIZE));
+            this.cursorPaging = Boolean.parseBoolean(configReader.readConfig(SolrTableConstants
+                    .PROPERTY_READ_CURSOR_PAGING, SolrTableConstants.DEFAULT_READ_CURSOR_PAGING));
             String domainName = configReader.readConfig(SolrTableConstants.PROPERTY_DOMAIN_IDENTIFIER,
                     SolrTableConstants.DEFAULT_PROPERTY_DOMAIN_IDENTIFIER);
             this.solrSchema = SolrTableUtils.createIndexSchema(schema);
@@ -194,13 +419,32 @@ public class SolrTable extends AbstractRecordTable {
         }
     }
 
+    private static long parseNumericOption(String tableId, String name, String value, long minimum) {
+        long parsed;
+        try {
+            parsed = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SolrTableException("Invalid value: '" + value + "' for '" + name + "' of solr table: " +
+                    tableId + ", the value has to be a number", e);
+        }
+        if (parsed < minimum || parsed > Integer.MAX_VALUE) {
+            throw new SolrTableException("Invalid value: '" + value + "' for '" + name + "' of solr table: " +
+                    tableId + ", the value has to be between " + minimum + " and " + Integer.MAX_VALUE);
+        }
+        return parsed;
+    }
+
     @Override
     protected void add(List<Object[]> records) {
         List<SiddhiSolrDocument> siddhiSolrDocuments = SolrTableUtils.createSolrDocuments(attributes, primaryKeys,
                 records);
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.add(siddhiSolrDocuments);
+            return;
+        }
         try {
             solrClientService.insertDocuments(collectionConfig.getCollectionName(), siddhiSolrDocuments,
-                    commitAsync);
+                    commitPolicy);
         } catch (SolrClientServiceException | SolrException e) {
             log.error("Error while inserting records to Solr Event Table: " + e.getMessage(), e);
         }
@@ -209,45 +453,173 @@ public class SolrTable extends AbstractRecordTable {
     @Override
     protected RecordIterator<Object[]> find(Map<String, Object> findConditionParameterMap, CompiledCondition
             compiledCondition) {
+        flushWriteBehindBuffer();
+        SolrCompiledCondition solrCompiledCondition = (SolrCompiledCondition) compiledCondition;
+        // a stream is opened per export, so only the scans are exported, not the lookups done for each event. The
+        // selections pushed down through query() are paged by the select handler, which applies their sort and window
+        if (exportClientCache != null && !solrCompiledCondition.isPrimaryKeyLookup() &&
+                !solrCompiledCondition.isParameterized()) {
+            Map<String, String> queryParameters = new HashMap<>();
+            String condition = SolrTableUtils.resolveCondition(solrCompiledCondition, findConditionParameterMap,
+                    collectionConfig.getCollectionName(), queryParameters);
+            return new SolrExportRecordIterator(condition, queryParameters, exportSort, collectionConfig,
+                    attributes, exportClientCache);
+        }
         return findRecords(findConditionParameterMap, (SolrCompiledCondition) compiledCondition);
     }
 
     private SolrRecordIterator findRecords(Map<String, Object> findConditionParameterMap, CompiledCondition
             compiledCondition) {
+        return findRecords(findConditionParameterMap, compiledCondition, null);
+    }
+
+    private SolrRecordIterator findRecords(Map<String, Object> findConditionParameterMap, CompiledCondition
+            compiledCondition, String[] fields) {
         try {
-            String condition = SolrTableUtils.resolveCondition((SolrCompiledCondition) compiledCondition,
+            if (((SolrCompiledCondition) compiledCondition).isPrimaryKeyLookup()) {
+                String id = ((SolrCompiledCondition) compiledCondition).resolveRecordId(findConditionParameterMap);
+                SolrDocumentList documents = solrClientService.getDocumentsById(collectionConfig.getCollectionName(),
+                        Collections.singletonList(id), fields);
+                return new SolrRecordIterator(documents, attributes);
+            }
+            SolrQuery query = SolrTableUtils.resolveQuery((SolrCompiledCondition) compiledCondition,
                     findConditionParameterMap, collectionConfig.getCollectionName());
-            return new SolrRecordIterator(condition, solrClientService, collectionConfig, readBatchSize,
-                    attributes);
+            return searchRecords(query, attributes).fields(fields != null ? fields : attributeFieldList)
+                    .prefetch(prefetchExecutor, prefetchDepth).build();
         } catch (SolrClientServiceException | SolrException e) {
             throw new SolrTableException("Error while searching records in Solr Event Table: " + e.getMessage(), e);
         }
     }
 
+    private SolrRecordIterator.Builder searchRecords(SolrQuery query, List<Attribute> outputAttributes)
+            throws SolrClientServiceException {
+        return new SolrRecordIterator.Builder(query,
+                solrClientService.getSolrServiceClientByURL(collectionConfig.getSolrServerUrl()),
+                collectionConfig.getCollectionName(), outputAttributes).batchSize(readBatchSize)
+                .cursorPaging(cursorPaging);
+    }
+
+    @Override
+    protected RecordIterator<Object[]> query(Map<String, Object> parameterMap, CompiledCondition compiledCondition,
+                                             CompiledSelection compiledSelection, Attribute[] outputAttributes) {
+        SolrCompiledCondition solrCompiledCondition = (SolrCompiledCondition) compiledCondition;
+        SolrCompiledSelection selection = (SolrCompiledSelection) compiledSelection;
+        flushWriteBehindBuffer();
+        try {
+            if (selection.isFacetSelection()) {
+                SolrQuery query = SolrTableUtils.resolveQuery(solrCompiledCondition, parameterMap,
+                        collectionConfig.getCollectionName());
+                NamedList<Object> facets = solrClientService.getFacets(collectionConfig.getCollectionName(), query,
+                        selection.getFacet());
+                return new SolrFacetRecordIterator(selection.createRecords(facets, outputAttributes));
+            }
+            if (solrCompiledCondition.isPrimaryKeyLookup()) {
+                SolrDocumentList documents = new SolrDocumentList();
+                if (selection.getOffset() == 0 && selection.getLimit() != 0) {
+                    String id = solrCompiledCondition.resolveRecordId(parameterMap);
+                    documents = solrClientService.getDocumentsById(collectionConfig.getCollectionName(),
+                            Collections.singletonList(id), selection.getFields());
+                }
+                return new SolrRecordIterator(documents, selection.getSelectedAttributes());
+            }
+            SolrQuery query = SolrTableUtils.resolveQuery(solrCompiledCondition, parameterMap,
+                    collectionConfig.getCollectionName());
+            query.setSorts(selection.getSorts());
+            SolrRecordIterator.Builder iterator = searchRecords(query, selection.getSelectedAttributes())
+                    .fields(selection.getFields()).window(selection.getOffset(), selection.getLimit());
+            if (!selection.isLimited() || selection.getLimit() > readBatchSize) {
+                iterator.prefetch(prefetchExecutor, prefetchDepth);
+            }
+            return iterator.build();
+        } catch (SolrClientServiceException | SolrException e) {
+            throw new SolrTableException("Error while querying records in Solr Event Table: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     protected boolean contains(Map<String, Object> containsConditionParameterMap, CompiledCondition compiledCondition) {
-        RecordIterator iterator = findRecords(containsConditionParameterMap, compiledCondition);
-        return iterator.hasNext();
+        flushWriteBehindBuffer();
+        try {
+            if (((SolrCompiledCondition) compiledCondition).isPrimaryKeyLookup()) {
+                String id = ((SolrCompiledCondition) compiledCondition).resolveRecordId(containsConditionParameterMap);
+                return !solrClientService.getDocumentsById(collectionConfig.getCollectionName(),
+                        Collections.singletonList(id), ID_FIELD_LIST).isEmpty();
+            }
+            SolrQuery query = SolrTableUtils.resolveQuery((SolrCompiledCondition) compiledCondition,
+                    containsConditionParameterMap, collectionConfig.getCollectionName());
+            return solrClientService.containsDocuments(collectionConfig.getCollectionName(), query);
+        } catch (SolrClientServiceException | SolrException e) {
+            throw new SolrTableException("Error while checking records in Solr Event Table: " + e.getMessage(), e);
+        }
     }
 
     @Override
     protected void delete(List<Map<String, Object>> deleteConditionParameterMaps, CompiledCondition compiledCondition) {
+        flushWriteBehindBuffer();
+        SolrCompiledCondition solrCompiledCondition = (SolrCompiledCondition) compiledCondition;
         try {
+            if (solrCompiledCondition.isPrimaryKeyLookup()) {
+                deleteSolrDocumentsById(deleteConditionParameterMaps, solrCompiledCondition);
+                return;
+            }
+            Set<String> conditions = new LinkedHashSet<>();
             for (Map<String, Object> deleteConditionParameterMap : deleteConditionParameterMaps) {
-                String condition = SolrTableUtils.resolveCondition((SolrCompiledCondition) compiledCondition,
-                        deleteConditionParameterMap, collectionConfig.getCollectionName());
-                solrClientService.deleteDocuments(collectionConfig.getCollectionName(), condition, commitAsync);
+                conditions.add(SolrTableUtils.resolveCondition(solrCompiledCondition, deleteConditionParameterMap,
+                        collectionConfig.getCollectionName()));
+                if (conditions.size() == deleteQueryBatchSize) {
+                    deleteSolrDocumentsByQuery(conditions);
+                    conditions = new LinkedHashSet<>();
+                }
             }
+            deleteSolrDocumentsByQuery(conditions);
         } catch (SolrClientServiceException | SolrException e) {
             log.error("Error while deleting documents from Solr Event Table: " + e.getMessage(), e);
         }
     }
 
+    /*
+    The ids of the documents matching primary key conditions are known without a search, so they are deleted by id,
+    which is routed to the shard of each document and does not block the concurrent updates like delete by query.
+    */
+    private void deleteSolrDocumentsById(List<Map<String, Object>> deleteConditionParameterMaps,
+                                         SolrCompiledCondition compiledCondition) throws SolrClientServiceException {
+        List<String> ids = new ArrayList<>();
+        for (Map<String, Object> deleteConditionParameterMap : deleteConditionParameterMaps) {
+            ids.add(compiledCondition.resolveRecordId(deleteConditionParameterMap));
+            if (ids.size() == updateBatchSize) {
+                solrClientService.updateDocuments(collectionConfig.getCollectionName(), Collections.emptyList(),
+                        ids, Collections.emptyList(), commitPolicy);
+                ids = new ArrayList<>();
+            }
+        }
+        solrClientService.updateDocuments(collectionConfig.getCollectionName(), Collections.emptyList(), ids,
+                Collections.emptyList(), commitPolicy);
+    }
+
+    /*
+    Each delete by query is executed on all the shards while blocking their updates, so the conditions of the events
+    are combined into a single disjunction, with up to the configured number of conditions in a query.
+    */
+    private void deleteSolrDocumentsByQuery(Collection<String> conditions) throws SolrClientServiceException {
+        if (conditions.isEmpty()) {
+            return;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String condition : conditions) {
+            // a leading local parameter block would apply to the whole query, so each condition is grouped, also
+            // when it is the only one
+            query.append(query.length() > 0 ? " OR (" : "(").append(condition).append(')');
+        }
+        solrClientService.updateDocuments(collectionConfig.getCollectionName(), Collections.emptyList(),
+                Collections.emptyList(), Collections.singletonList(query.toString()), commitPolicy);
+    }
+
     @Override
     protected void update(CompiledCondition updateCondition,
                           List<Map<String, Object>> updateConditionParameterMaps,
                           Map<String, CompiledExpression> updateSetCompiledExpressionMap,
                           List<Map<String, Object>> updateSetParameterMaps) throws ConnectionUnavailableException {
+        flushWriteBehindBuffer();
         try {
             upsertSolrDocuments(updateConditionParameterMaps, updateCondition, updateSetParameterMaps,
                     updateSetCompiledExpressionMap, null);
@@ -262,67 +634,313 @@ public class SolrTable extends AbstractRecordTable {
                                      Map<String, CompiledExpression> updateSetCompiledExpressionMap,
                                      List<Object[]> addingRecords)
             throws SolrClientServiceException, SolrServerException, IOException {
-        List<SiddhiSolrDocument> addDocs = new ArrayList<>();
+        SolrCompiledCondition solrCompiledCondition = (SolrCompiledCondition) compiledCondition;
+        boolean reKeying = primaryKeys != null && !primaryKeys.isEmpty() &&
+                updatesPrimaryKey(updateSetCompiledExpressionMap.keySet());
+        if (reKeying && !isSetOnly(updateSetCompiledExpressionMap)) {
+            throw new SolrTableException("Updating the primary keys of the records of Solr Store '" +
+                    collectionConfig.getCollectionName() + "' replaces them, so the attributes can only be set with " +
+                    "values, not incremented or added to.");
+        }
+        if (solrCompiledCondition.isPrimaryKeyLookup() && !reKeying) {
+            upsertSolrDocumentsById(updateConditionParameterMaps, solrCompiledCondition, updateSetParameterMaps,
+                    updateSetCompiledExpressionMap, addingRecords);
+            return;
+        }
+        // only the id is needed to update a document in place, re-keyed documents need all their fields
+        String[] fields = reKeying ? updateFieldList : ID_FIELD_LIST;
+        if (solrCompiledCondition.isKeyed() && updateConditionParameterMaps.size() > 1) {
+            upsertSolrDocumentsByKey(updateConditionParameterMaps, solrCompiledCondition, updateSetParameterMaps,
+                    updateSetCompiledExpressionMap, addingRecords, reKeying, fields);
+            return;
+        }
         for (int index = 0; index < updateConditionParameterMaps.size(); index++) {
-            Map<String, Object> updateConditionParameterMap = updateConditionParameterMaps.get(index);
-            SolrRecordIterator solrRecordIterator = findRecords(updateConditionParameterMap, compiledCondition);
+            Map<String, Map<String, Object>> updateFields = resolveUpdateFields(updateSetParameterMaps.get(index),
+                    updateSetCompiledExpressionMap);
+            SolrRecordIterator solrRecordIterator = findRecords(updateConditionParameterMaps.get(index),
+                    compiledCondition, fields);
             if (solrRecordIterator.hasNext()) {
                 List<String> deleteDocIds = new ArrayList<>();
                 List<SiddhiSolrDocument> updateDocs = new ArrayList<>();
-                Map<String, Object> updateSetParameterMap = updateSetParameterMaps.get(index);
-                Map<String, Object> updateFields = new HashMap<>();
-                for (Map.Entry<String, CompiledExpression> entry : updateSetCompiledExpressionMap.entrySet()) {
-                    updateFields.put(entry.getKey(),
-                            SolrTableUtils.resolveCondition((SolrCompiledCondition) entry.getValue(),
-                                    updateSetParameterMap, collectionConfig.getCollectionName()));
-                }
-                Collection<String> updatablePrimaryKeys = updateFields.keySet();
-                if (primaryKeys != null && !primaryKeys.isEmpty()) {
-                    updatablePrimaryKeys.retainAll(primaryKeys);
-                }
                 while (solrRecordIterator.hasNext()) {
-                    SiddhiSolrDocument inputDocument = new SiddhiSolrDocument();
-                    SolrDocument document = solrRecordIterator.nextDocument();
-                    addUpdateFieldsToSolrDocument(updateFields, inputDocument);
-                    if (!updatablePrimaryKeys.isEmpty() && primaryKeys != null && !primaryKeys.isEmpty()) {
-                        deleteDocIds.add(inputDocument.getFieldValue(SolrSchemaField.FIELD_ID).toString());
-                        inputDocument.setField(SolrSchemaField.FIELD_ID,
-                                SolrTableUtils.generateRecordIdFromPrimaryKeyValues(inputDocument, primaryKeys));
-
-                    } else {
-                        inputDocument.setField(SolrSchemaField.FIELD_ID,
-                                document.getFieldValue(SolrSchemaField.FIELD_ID));
-                    }
-                    updateDocs.add(inputDocument);
+                    updateDocs.add(createUpdateDocument(solrRecordIterator.nextDocument(), updateFields, reKeying,
+                            deleteDocIds));
                     if (updateDocs.size() == updateBatchSize) {
-                        solrClientService.insertDocuments(collectionConfig.getCollectionName(), updateDocs,
-                                commitAsync);
-                        solrClientService.deleteDocuments(collectionConfig.getCollectionName(), deleteDocIds,
-                                commitAsync);
+                        writeDocuments(updateDocs, deleteDocIds);
                         updateDocs = new ArrayList<>();
                         deleteDocIds = new ArrayList<>();
                     }
                 }
-                if (!deleteDocIds.isEmpty()) {
-                    solrClientService.deleteDocuments(collectionConfig.getCollectionName(), deleteDocIds, commitAsync);
+                writeDocuments(updateDocs, deleteDocIds);
+            } else {
+                writeDocuments(getNewSolrDocuments(addingRecords, index), Collections.emptyList());
+            }
+        }
+    }
+
+    /*
+    The documents matching the keyed conditions of a chunk of events, of at most the update key batch size, are
+    fetched with a single search, and attributed back to the events by the values of the key fields. The events are
+    applied in their order, so the later events with the same key update the documents the earlier ones have added.
+    */
+    private void upsertSolrDocumentsByKey(List<Map<String, Object>> updateConditionParameterMaps,
+                                          SolrCompiledCondition compiledCondition,
+                                          List<Map<String, Object>> updateSetParameterMaps,
+                                          Map<String, CompiledExpression> updateSetCompiledExpressionMap,
+                                          List<Object[]> addingRecords, boolean reKeying, String[] fields)
+            throws SolrClientServiceException {
+        Set<String> keyedFields = new LinkedHashSet<>(Arrays.asList(fields));
+        keyedFields.addAll(compiledCondition.getKeyFields());
+        String[] fetchedFields = keyedFields.toArray(new String[keyedFields.size()]);
+        for (int start = 0; start < updateConditionParameterMaps.size(); start += updateKeyBatchSize) {
+            int end = Math.min(start + updateKeyBatchSize, updateConditionParameterMaps.size());
+            List<List<String>> keys = new ArrayList<>(end - start);
+            Map<List<String>, List<SolrDocument>> documentsByKey = new HashMap<>();
+            for (int index = start; index < end; index++) {
+                List<String> key = compiledCondition.resolveKey(updateConditionParameterMaps.get(index));
+                keys.add(key);
+                documentsByKey.put(key, new ArrayList<>());
+            }
+            SolrQuery query = SolrTableUtils.createKeyQuery(compiledCondition.getKeyFields(),
+                    documentsByKey.keySet());
+            SolrRecordIterator solrRecordIterator = searchRecords(query, attributes).fields(fetchedFields).build();
+            while (solrRecordIterator.hasNext()) {
+                SolrDocument document = solrRecordIterator.nextDocument();
+                List<SolrDocument> documents = documentsByKey.get(compiledCondition.resolveKey(document));
+                if (documents != null) {
+                    documents.add(document);
                 }
-                if (!updateDocs.isEmpty()) {
-                    solrClientService.insertDocuments(collectionConfig.getCollectionName(), updateDocs, commitAsync);
+            }
+            List<String> deleteDocIds = new ArrayList<>();
+            List<SiddhiSolrDocument> updateDocs = new ArrayList<>();
+            for (int index = start; index < end; index++) {
+                List<SolrDocument> documents = documentsByKey.get(keys.get(index - start));
+                if (documents.isEmpty()) {
+                    List<SiddhiSolrDocument> addDocs = getNewSolrDocuments(addingRecords, index);
+                    if (!addDocs.isEmpty()) {
+                        updateDocs.add(addDocs.get(0));
+                        documents.add(toSolrDocument(addDocs.get(0)));
+                    }
+                } else {
+                    Map<String, Map<String, Object>> updateFields = resolveUpdateFields(
+                            updateSetParameterMaps.get(index), updateSetCompiledExpressionMap);
+                    for (SolrDocument document : documents) {
+                        updateDocs.add(createUpdateDocument(document, updateFields, reKeying, deleteDocIds));
+                    }
+                }
+                if (updateDocs.size() >= updateBatchSize) {
+                    writeDocuments(updateDocs, deleteDocIds);
+                    updateDocs = new ArrayList<>();
+                    deleteDocIds = new ArrayList<>();
+                }
+            }
+            writeDocuments(updateDocs, deleteDocIds);
+        }
+    }
+
+    /*
+    A document is updated in place with atomic updates, unless a primary key is updated. The id of a re-keyed document
+    changes, so it is replaced with a complete document having the updated values, and the fetched document is
+    deleted.
+    */
+    private SiddhiSolrDocument createUpdateDocument(SolrDocument document,
+                                                    Map<String, Map<String, Object>> updateFields,
+                                                    boolean reKeying, List<String> deleteDocIds) {
+        String id = document.getFieldValue(SolrSchemaField.FIELD_ID).toString();
+        SiddhiSolrDocument inputDocument = new SiddhiSolrDocument();
+        if (reKeying) {
+            for (String field : attributeFieldList) {
+                inputDocument.setField(field, updateFields.containsKey(field) ?
+                        updateFields.get(field).get(SolrCompiledSetExpression.SET_MODIFIER) :
+                        document.getFieldValue(field));
+            }
+            String newId = SolrTableUtils.generateRecordIdFromPrimaryKeyValues(inputDocument, primaryKeys);
+            inputDocument.setField(SolrSchemaField.FIELD_ID, newId);
+            if (!newId.equals(id)) {
+                deleteDocIds.add(id);
+            }
+        } else {
+            addUpdateFieldsToSolrDocument(updateFields, inputDocument);
+            inputDocument.setField(SolrSchemaField.FIELD_ID, id);
+        }
+        return inputDocument;
+    }
+
+    private static SolrDocument toSolrDocument(SiddhiSolrDocument inputDocument) {
+        SolrDocument document = new SolrDocument();
+        for (String name : inputDocument.getFieldNames()) {
+            document.setField(name, inputDocument.getFieldValue(name));
+        }
+        return document;
+    }
+
+    /*
+    The documents and the deletes are sent in a single update request, where solr applies the deletes after the
+    documents. A document re-keyed to the old id of another re-keyed document replaces it, so that id is not deleted.
+    */
+    private void writeDocuments(List<SiddhiSolrDocument> updateDocs, List<String> deleteDocIds)
+            throws SolrClientServiceException {
+        List<String> deletes = deleteDocIds;
+        if (!deleteDocIds.isEmpty()) {
+            Set<String> writtenIds = new HashSet<>();
+            for (SiddhiSolrDocument updateDoc : updateDocs) {
+                writtenIds.add(updateDoc.getFieldValue(SolrSchemaField.FIELD_ID).toString());
+            }
+            deletes = new ArrayList<>(deleteDocIds.size());
+            for (String id : deleteDocIds) {
+                if (!writtenIds.contains(id)) {
+                    deletes.add(id);
                 }
-            } else {
-                addDocs = getNewSolrDocuments(addingRecords, index);
             }
-            if (!addDocs.isEmpty()) {
-                solrClientService.insertDocuments(collectionConfig.getCollectionName(), addDocs, commitAsync);
+        }
+        solrClientService.updateDocuments(collectionConfig.getCollectionName(), updateDocs, deletes,
+                Collections.emptyList(), commitPolicy);
+    }
+
+    /*
+    The id of the document of a primary key condition is known without a search, so the atomic updates are sent
+    blindly with a _version_ of 1, which makes solr reject the update of a document which does not exist. A chunk is
+    sent in a single request, and only when solr reports a version conflict the events of the chunk are applied one
+    by one, adding the documents which do not exist with a _version_ of -1, which makes solr reject the add of a
+    document which has been added concurrently. The set updates are idempotent, so the updates of a chunk which were
+    applied before the conflict can be safely sent again. The increments are not, so they are applied one by one from
+    the start.
+    */
+    private void upsertSolrDocumentsById(List<Map<String, Object>> updateConditionParameterMaps,
+                                         SolrCompiledCondition compiledCondition,
+                                         List<Map<String, Object>> updateSetParameterMaps,
+                                         Map<String, CompiledExpression> updateSetCompiledExpressionMap,
+                                         List<Object[]> addingRecords) throws SolrClientServiceException {
+        List<SiddhiSolrDocument> updateDocs = new ArrayList<>(updateConditionParameterMaps.size());
+        for (int index = 0; index < updateConditionParameterMaps.size(); index++) {
+            SiddhiSolrDocument updateDoc = new SiddhiSolrDocument();
+            addUpdateFieldsToSolrDocument(resolveUpdateFields(updateSetParameterMaps.get(index),
+                    updateSetCompiledExpressionMap), updateDoc);
+            updateDoc.setField(SolrSchemaField.FIELD_ID,
+                    compiledCondition.resolveRecordId(updateConditionParameterMaps.get(index)));
+            updateDoc.setField(SolrSchemaField.FIELD_VERSION, VERSION_MUST_EXIST);
+            updateDocs.add(updateDoc);
+        }
+        if (!isIdempotent(updateSetCompiledExpressionMap)) {
+            for (int index = 0; index < updateDocs.size(); index++) {
+                upsertSolrDocumentById(updateDocs.get(index), addingRecords, index);
+            }
+            return;
+        }
+        for (int start = 0; start < updateDocs.size(); start += updateBatchSize) {
+            int end = Math.min(start + updateBatchSize, updateDocs.size());
+            try {
+                solrClientService.insertDocuments(collectionConfig.getCollectionName(), updateDocs.subList(start,
+                        end), commitPolicy);
+            } catch (SolrException e) {
+                if (!isVersionConflict(e)) {
+                    throw e;
+                }
+                for (int index = start; index < end; index++) {
+                    upsertSolrDocumentById(updateDocs.get(index), addingRecords, index);
+                }
+            }
+        }
+    }
+
+    private void upsertSolrDocumentById(SiddhiSolrDocument updateDoc, List<Object[]> addingRecords, int index)
+            throws SolrClientServiceException {
+        if (insertIfNoVersionConflict(updateDoc)) {
+            return;
+        }
+        List<SiddhiSolrDocument> addDocs = getNewSolrDocuments(addingRecords, index);
+        if (!addDocs.isEmpty()) {
+            addDocs.get(0).setField(SolrSchemaField.FIELD_VERSION, VERSION_MUST_NOT_EXIST);
+            if (!insertIfNoVersionConflict(addDocs.get(0))) {
+                // the document has been added by a concurrent writer since the update was rejected
+                insertIfNoVersionConflict(updateDoc);
+            }
+        }
+    }
+
+    private boolean insertIfNoVersionConflict(SiddhiSolrDocument document) throws SolrClientServiceException {
+        try {
+            solrClientService.insertDocuments(collectionConfig.getCollectionName(),
+                    Collections.singletonList(document), commitPolicy);
+            return true;
+        } catch (SolrException e) {
+            if (isVersionConflict(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /*
+    The cloud client reports the errors of the shard leaders wrapped in a routing error, so the conflict is looked up
+    through the causes.
+    */
+    private static boolean isVersionConflict(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SolrException && ((SolrException) cause).code() ==
+                    SolrException.ErrorCode.CONFLICT.code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+    Resolves the atomic update of each updated attribute, as its modifier mapped to the value of the modifier.
+    */
+    private Map<String, Map<String, Object>> resolveUpdateFields(Map<String, Object> updateSetParameterMap,
+                                                                 Map<String, CompiledExpression>
+                                                                         updateSetCompiledExpressionMap) {
+        Map<String, Map<String, Object>> updateFields = new HashMap<>();
+        for (Map.Entry<String, CompiledExpression> entry : updateSetCompiledExpressionMap.entrySet()) {
+            updateFields.put(entry.getKey(), ((SolrCompiledSetExpression) entry.getValue()).resolve(
+                    updateSetParameterMap));
+        }
+        return updateFields;
+    }
+
+    private static boolean isSetOnly(Map<String, CompiledExpression> updateSetCompiledExpressionMap) {
+        for (CompiledExpression expression : updateSetCompiledExpressionMap.values()) {
+            if (!SolrCompiledSetExpression.SET_MODIFIER.equals(((SolrCompiledSetExpression) expression)
+                    .getModifier())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdempotent(Map<String, CompiledExpression> updateSetCompiledExpressionMap) {
+        for (CompiledExpression expression : updateSetCompiledExpressionMap.values()) {
+            if (!((SolrCompiledSetExpression) expression).isIdempotent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean updatesPrimaryKey(Collection<String> updatedAttributes) {
+        for (String attribute : updatedAttributes) {
+            if (primaryKeys.contains(attribute)) {
+                return true;
             }
         }
+        return false;
     }
 
-    private void addUpdateFieldsToSolrDocument(Map<String, Object> updateFields, SiddhiSolrDocument inputDocument) {
-        for (Map.Entry<String, Object> entry : updateFields.entrySet()) {
-            Map<String, Object> update = new HashMap<>();
-            update.put(SET_MODIFIER, entry.getValue());
-            inputDocument.addField(entry.getKey(), update);
+    /*
+    Buffered inserts have to reach solr before a read, a delete or an update is applied, otherwise it could miss the
+    documents which were added before it.
+    */
+    private void flushWriteBehindBuffer() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.flush();
+        }
+    }
+
+    private void addUpdateFieldsToSolrDocument(Map<String, Map<String, Object>> updateFields,
+                                               SiddhiSolrDocument inputDocument) {
+        for (Map.Entry<String, Map<String, Object>> entry : updateFields.entrySet()) {
+            inputDocument.addField(entry.getKey(), entry.getValue());
         }
     }
 
@@ -342,6 +960,7 @@ public class SolrTable extends AbstractRecordTable {
                                Map<String, CompiledExpression> updateSetCompiledExpressionMap,
                                List<Map<String, Object>> updateSetParameterMaps,
                                List<Object[]> addingRecords) throws ConnectionUnavailableException {
+        flushWriteBehindBuffer();
         try {
             upsertSolrDocuments(updateConditionParameterMaps, updateCondition,
                     updateSetParameterMaps, updateSetCompiledExpressionMap, addingRecords);
@@ -353,18 +972,214 @@ public class SolrTable extends AbstractRecordTable {
 
     @Override
     protected CompiledCondition compileCondition(ExpressionBuilder expressionBuilder) {
-        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        SolrConditionVisitor visitor = new SolrConditionVisitor(getAnalyzedFields(), objectTermsCondition);
         expressionBuilder.build(visitor);
-        return new SolrCompiledCondition(visitor.returnCondition());
+        Map<String, SolrCompiledCondition.Operand> equalityOperands = visitor.returnEqualityOperands();
+        if (primaryKeys != null && !primaryKeys.isEmpty() && equalityOperands.keySet().equals(
+                new HashSet<>(primaryKeys))) {
+            List<SolrCompiledCondition.Operand> primaryKeyOperands = new ArrayList<>(primaryKeys.size());
+            for (String primaryKey : primaryKeys) {
+                primaryKeyOperands.add(equalityOperands.get(primaryKey));
+            }
+            return new SolrCompiledCondition(visitor.returnTemplate(), primaryKeyOperands);
+        }
+        return visitor.returnCompiledCondition();
+    }
+
+    /*
+    The fields of text types in the explicit schema are tokenized, so they are not matched by exact terms. The fields
+    which are not in the explicit schema are added as strings by solr, which are not tokenized.
+    */
+    private Set<String> getAnalyzedFields() {
+        Set<String> analyzedFields = new HashSet<>();
+        if (solrSchema != null && solrSchema.getFields() != null) {
+            for (Map.Entry<String, SolrSchemaField> entry : solrSchema.getFields().entrySet()) {
+                Object type = entry.getValue().getProperty(SolrSchemaField.ATTR_TYPE);
+                if (type != null && type.toString().toLowerCase(Locale.ENGLISH).contains(TEXT_FIELD_TYPE)) {
+                    analyzedFields.add(entry.getKey());
+                }
+            }
+        }
+        return analyzedFields;
+    }
+
+    /*
+    The set expressions are compiled without the attributes they are assigned to, so the modifiers, which are applied
+    to the stored value of the updated attribute, are checked against the set attributes here.
+    */
+    @Override
+    public CompiledUpdateSet compileUpdateSet(UpdateSet updateSet, MatchingMetaInfoHolder matchingMetaInfoHolder,
+                                              List<VariableExpressionExecutor> variableExpressionExecutors,
+                                              Map<String, Table> tableMap, SiddhiQueryContext siddhiQueryContext) {
+        RecordTableCompiledUpdateSet compiledUpdateSet = (RecordTableCompiledUpdateSet) super.compileUpdateSet(
+                updateSet, matchingMetaInfoHolder, variableExpressionExecutors, tableMap, siddhiQueryContext);
+        for (Map.Entry<String, CompiledExpression> entry : compiledUpdateSet.getUpdateSetMap().entrySet()) {
+            ((SolrCompiledSetExpression) entry.getValue()).validateUpdatedAttribute(entry.getKey());
+        }
+        return compiledUpdateSet;
     }
 
     @Override
     protected CompiledExpression compileSetAttribute(ExpressionBuilder expressionBuilder) {
         SolrSetExpressionVisitor visitor = new SolrSetExpressionVisitor();
         expressionBuilder.build(visitor);
-        return new SolrCompiledCondition(visitor.returnExpression());
+        return visitor.returnCompiledExpression();
     }
 
+    @Override
+    protected CompiledSelection compileSelection(List<SelectAttributeBuilder> selectAttributeBuilders,
+                                                 List<ExpressionBuilder> groupByExpressionBuilder,
+                                                 ExpressionBuilder havingExpressionBuilder,
+                                                 List<OrderByAttributeBuilder> orderByAttributeBuilders, Long limit,
+                                                 Long offset) {
+        if (havingExpressionBuilder != null) {
+            throw new QueryableRecordTableException("Having can not be pushed down to Solr Store.");
+        }
+        List<String> groupByFields = new ArrayList<>();
+        if (groupByExpressionBuilder != null) {
+            Set<String> analyzedFields = getAnalyzedFields();
+            for (ExpressionBuilder expressionBuilder : groupByExpressionBuilder) {
+                SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor();
+                expressionBuilder.build(visitor);
+                String field = visitor.returnAttribute().getName();
+                if (analyzedFields.contains(field)) {
+                    throw new QueryableRecordTableException("Group by '" + field + "' can not be pushed down to " +
+                            "Solr Store, only the attributes which are not tokenized can be grouped.");
+                }
+                groupByFields.add(field);
+            }
+        }
+        List<SolrSelectExpressionVisitor> selectVisitors = new ArrayList<>(selectAttributeBuilders.size());
+        boolean aggregation = !groupByFields.isEmpty();
+        for (SelectAttributeBuilder selectAttributeBuilder : selectAttributeBuilders) {
+            SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor(approximateAggregation,
+                    collectionConfig.getNoOfShards() == 1);
+            selectAttributeBuilder.getExpressionBuilder().build(visitor);
+            selectVisitors.add(visitor);
+            aggregation = aggregation || visitor.isAggregation();
+        }
+        if (aggregation) {
+            return compileFacetSelection(selectAttributeBuilders, selectVisitors, groupByFields,
+                    orderByAttributeBuilders, limit, offset);
+        }
+        List<Attribute> selectedAttributes = new ArrayList<>(selectAttributeBuilders.size());
+        Map<String, String> fieldsByOutputName = new HashMap<>();
+        for (int i = 0; i < selectAttributeBuilders.size(); i++) {
+            Attribute attribute = selectVisitors.get(i).returnAttribute();
+            selectedAttributes.add(attribute);
+            fieldsByOutputName.put(selectAttributeBuilders.get(i).getRename(), attribute.getName());
+        }
+        List<SolrQuery.SortClause> sorts = new ArrayList<>();
+        if (orderByAttributeBuilders != null && !orderByAttributeBuilders.isEmpty()) {
+            Set<String> analyzedFields = getAnalyzedFields();
+            for (OrderByAttributeBuilder orderByAttributeBuilder : orderByAttributeBuilders) {
+                SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor();
+                orderByAttributeBuilder.getExpressionBuilder().build(visitor);
+                String name = visitor.returnAttribute().getName();
+                String field = fieldsByOutputName.containsKey(name) ? fieldsByOutputName.get(name) : name;
+                if (!Arrays.asList(attributeFieldList).contains(field) || analyzedFields.contains(field)) {
+                    throw new QueryableRecordTableException("Order by '" + name + "' can not be pushed down to " +
+                            "Solr Store, only the attributes which are not tokenized can be sorted.");
+                }
+                sorts.add(new SolrQuery.SortClause(field, orderByAttributeBuilder.getOrder() ==
+                        OrderByAttribute.Order.DESC ? SolrQuery.ORDER.desc : SolrQuery.ORDER.asc));
+            }
+            if (sorts.stream().noneMatch(sort -> SolrSchemaField.FIELD_ID.equals(sort.getItem()))) {
+                // the documents with the same sort values are ordered by the unique key, so that pages are stable
+                sorts.add(new SolrQuery.SortClause(SolrSchemaField.FIELD_ID, SolrQuery.ORDER.asc));
+            }
+        }
+        return new SolrCompiledSelection(selectedAttributes, sorts, limit != null ? limit : -1,
+                offset != null ? offset : 0);
+    }
+
+    /*
+    Each group by attribute is a terms facet nested in the facet of the previous one, and the aggregations are the
+    statistics of the innermost buckets. The buckets can only be ordered and paged by solr when there is a single
+    level of them. Solr returns the bucket of the documents without a group by value apart from the ordered buckets,
+    so a page starts a bucket early, and the missing bucket is placed among the buckets of the page when the records
+    are created, the same as siddhi orders a null value.
+    */
+    private SolrCompiledSelection compileFacetSelection(List<SelectAttributeBuilder> selectAttributeBuilders,
+                                                        List<SolrSelectExpressionVisitor> selectVisitors,
+                                                        List<String> groupByFields,
+                                                        List<OrderByAttributeBuilder> orderByAttributeBuilders,
+                                                        Long limit, Long offset) {
+        List<SolrCompiledSelection.Column> columns = new ArrayList<>(selectVisitors.size());
+        List<String> stats = new ArrayList<>();
+        Map<String, String> sortNamesByOutputName = new HashMap<>();
+        for (int i = 0; i < selectVisitors.size(); i++) {
+            SolrSelectExpressionVisitor visitor = selectVisitors.get(i);
+            String outputName = selectAttributeBuilders.get(i).getRename();
+            if (visitor.isAggregation()) {
+                String function = visitor.returnFacetFunction();
+                String statName = function != null ? FACET_STAT_PREFIX + i : FACET_COUNT;
+                if (function != null) {
+                    stats.add("\"" + statName + "\":\"" + function + "\"");
+                }
+                columns.add(SolrCompiledSelection.Column.stat(statName));
+                sortNamesByOutputName.put(outputName, statName);
+            } else {
+                String field = visitor.returnAttribute().getName();
+                int level = groupByFields.indexOf(field);
+                if (level < 0) {
+                    throw new QueryableRecordTableException("Attribute '" + field + "' which is neither grouped " +
+                            "nor aggregated can not be pushed down to Solr Store.");
+                }
+                columns.add(SolrCompiledSelection.Column.groupBy(level));
+                sortNamesByOutputName.put(outputName, FACET_INDEX);
+            }
+        }
+        boolean ordered = orderByAttributeBuilders != null && !orderByAttributeBuilders.isEmpty();
+        boolean paged = limit != null || (offset != null && offset > 0);
+        String sort = FACET_INDEX + " asc";
+        String sortName = null;
+        boolean descending = false;
+        if (!groupByFields.isEmpty() && (ordered || paged)) {
+            if (groupByFields.size() != 1 || (ordered && orderByAttributeBuilders.size() != 1)) {
+                throw new QueryableRecordTableException("Order by, limit and offset of aggregations can only be " +
+                        "pushed down to Solr Store with a single group by attribute and a single order by attribute.");
+            }
+            if (ordered) {
+                OrderByAttributeBuilder orderByAttributeBuilder = orderByAttributeBuilders.get(0);
+                SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor();
+                orderByAttributeBuilder.getExpressionBuilder().build(visitor);
+                String name = visitor.returnAttribute().getName();
+                sortName = name.equals(groupByFields.get(0)) ? FACET_INDEX : sortNamesByOutputName.get(name);
+                if (sortName == null) {
+                    throw new QueryableRecordTableException("Order by '" + name + "' can not be pushed down to " +
+                            "Solr Store, only the selected aggregations and the group by attribute can be sorted.");
+                }
+                descending = orderByAttributeBuilder.getOrder() == OrderByAttribute.Order.DESC;
+                sort = sortName + (descending ? " desc" : " asc");
+            }
+        }
+        String facet = String.join(",", stats);
+        List<String> groupByFacetNames = new ArrayList<>(groupByFields.size());
+        for (int level = 0; level < groupByFields.size(); level++) {
+            groupByFacetNames.add(FACET_GROUP_PREFIX + level);
+        }
+        for (int level = groupByFields.size() - 1; level >= 0; level--) {
+            StringBuilder terms = new StringBuilder();
+            terms.append('"').append(groupByFacetNames.get(level)).append("\":{\"type\":\"terms\",\"field\":\"")
+                    .append(groupByFields.get(level)).append("\",\"sort\":\"").append(sort).append('"');
+            if (paged) {
+                long start = offset != null && offset > 0 ? offset - 1 : 0;
+                long count = limit == null ? -1 : limit + (offset != null && offset > 0 ? 1 : 0);
+                terms.append(",\"limit\":").append(count).append(",\"offset\":").append(start);
+            } else {
+                terms.append(",\"limit\":-1");
+            }
+            terms.append(",\"missing\":true");
+            if (!facet.isEmpty()) {
+                terms.append(",\"facet\":{").append(facet).append('}');
+            }
+            facet = terms.append('}').toString();
+        }
+        return new SolrCompiledSelection("{" + facet + "}", groupByFacetNames, columns,
+                FACET_INDEX.equals(sortName) ? null : sortName, descending, limit != null ? limit : -1,
+                offset != null ? offset : 0);
+    }
 
     @Override
     protected void connect() throws ConnectionUnavailableException {
@@ -377,6 +1192,24 @@ public class SolrTable extends AbstractRecordTable {
                 solrClientService.updateSolrSchema(collectionConfig.getCollectionName(), solrSchema, this.mergeSchema);
                 schemaUpdatedOnce = true;
             }
+            if (exportReadMode && exportClientCache == null) {
+                exportClientCache = new SolrClientCache();
+            }
+            if (prefetchDepth > 0 && prefetchExecutor == null) {
+                AtomicInteger threadCount = new AtomicInteger();
+                prefetchExecutor = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "siddhi-solr-prefetch-" +
+                            collectionConfig.getCollectionName() + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            if (writeBehind && writeBehindBuffer == null) {
+                writeBehindBuffer = new SolrWriteBehindBuffer(collectionConfig.getCollectionName(),
+                        writeBehindQueueSize, writeBehindBatchSize, writeBehindLingerMs, writeBehindFlushers,
+                        docs -> solrClientService.insertDocuments(collectionConfig.getCollectionName(), docs,
+                                commitPolicy));
+            }
         } catch (SolrException | SolrClientServiceException e) {
             throw new ConnectionUnavailableException("Error while initializing the solr Event table: " +
                     e.getMessage(), e);
@@ -385,11 +1218,22 @@ public class SolrTable extends AbstractRecordTable {
 
     @Override
     protected void disconnect() {
-        //ignore
+        if (exportClientCache != null) {
+            exportClientCache.close();
+            exportClientCache = null;
+        }
     }
 
     @Override
     protected void destroy() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.close();
+            writeBehindBuffer = null;
+        }
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
         try {
             solrClientService.tryToCloseClient(collectionConfig);
         } catch (IOException e) {
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.config;
+
+/**
+ * Represents how the changes sent to a solr collection are committed.
+ */
+public class CommitPolicy {
+    private boolean commitAsync;
+    private int commitWithinMs;
+    private boolean softCommit;
+    private boolean openSearcher;
+
+    private CommitPolicy(boolean commitAsync, int commitWithinMs, boolean softCommit, boolean openSearcher) {
+        this.commitAsync = commitAsync;
+        this.commitWithinMs = commitWithinMs;
+        this.softCommit = softCommit;
+        this.openSearcher = openSearcher;
+    }
+
+    public boolean isCommitAsync() {
+        return commitAsync;
+    }
+
+    public int getCommitWithinMs() {
+        return commitWithinMs;
+    }
+
+    /**
+     * Returns whether the commit is delegated to solr through the commitWithin parameter of the update requests.
+     */
+    public boolean isCommitWithin() {
+        return commitWithinMs > 0;
+    }
+
+    /**
+     * Returns whether an explicit commit has to be issued after each update request.
+     */
+    public boolean isExplicitCommit() {
+        return !commitAsync && !isCommitWithin();
+    }
+
+    public boolean isSoftCommit() {
+        return softCommit;
+    }
+
+    public boolean isOpenSearcher() {
+        return openSearcher;
+    }
+
+    /**
+     * Builder class for creating the CommitPolicy objects.
+     */
+    public static class Builder {
+        private boolean commitAsync = true;
+        private int commitWithinMs = -1;
+        private boolean softCommit;
+        private boolean openSearcher = true;
+
+        public Builder() {
+
+        }
+
+        public Builder commitAsync(boolean commitAsync) {
+            this.commitAsync = commitAsync;
+            return this;
+        }
+
+        public Builder commitWithinMs(int commitWithinMs) {
+            this.commitWithinMs = commitWithinMs;
+            return this;
+        }
+
+        public Builder softCommit(boolean softCommit) {
+            this.softCommit = softCommit;
+            return this;
+        }
+
+        public Builder openSearcher(boolean openSearcher) {
+            this.openSearcher = openSearcher;
+            return this;
+        }
+
+        public CommitPolicy build() {
+            return new CommitPolicy(commitAsync, commitWithinMs, softCommit, openSearcher);
+        }
+    }
+}
@@ -23,6 +23,8 @@ import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
@@ -30,6 +32,7 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
 import org.apache.solr.common.util.NamedList;
 import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
 
@@ -172,6 +175,14 @@ public class SiddhiSolrClient extends SolrClient {
         return solrClient.commit(waitFlush, waitSearcher, softCommit);
     }
 
+    public UpdateResponse commit(String collection, boolean waitFlush, boolean waitSearcher, boolean softCommit,
+                                 boolean openSearcher) throws SolrServerException, IOException {
+        UpdateRequest request = new UpdateRequest();
+        request.setAction(AbstractUpdateRequest.ACTION.COMMIT, waitFlush, waitSearcher, softCommit);
+        request.setParam(UpdateParams.OPEN_SEARCHER, String.valueOf(openSearcher));
+        return request.process(solrClient, SolrTableUtils.getCollectionNameWithDomainName(domain, collection));
+    }
+
     public UpdateResponse optimize(String collection) throws SolrServerException, IOException {
         return solrClient.optimize(SolrTableUtils.getCollectionNameWithDomainName(domain, collection));
     }
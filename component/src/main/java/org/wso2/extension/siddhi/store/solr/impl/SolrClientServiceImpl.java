@@ -21,25 +21,34 @@ package org.wso2.extension.siddhi.store.solr.impl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.request.ConfigSetAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.client.solrj.response.CollectionAdminResponse;
 import org.apache.solr.client.solrj.response.ConfigSetAdminResponse;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.schema.SchemaResponse;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
 import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocument;
 import org.wso2.extension.siddhi.store.solr.beans.SolrSchema;
 import org.wso2.extension.siddhi.store.solr.beans.SolrSchemaField;
 import org.wso2.extension.siddhi.store.solr.config.CollectionConfiguration;
+import org.wso2.extension.siddhi.store.solr.config.CommitPolicy;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrClientServiceException;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrSchemaNotFoundException;
 import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,6 +64,9 @@ public enum  SolrClientServiceImpl {
     INSTANCE;
     private static final String ATTR_ERRORS = "errors";
     private static final String ATTR_COLLECTIONS = "collections";
+    private static final String JSON_FACET_PARAM = "json.facet";
+    private static final String FACETS = "facets";
+    private static final String FACET_COUNT = "count";
     private static Log log = LogFactory.getLog(SolrClientServiceImpl.class);
     private volatile SiddhiSolrClient indexerClient = null;
     private static Map<String, CollectionConfiguration> tableToConfigMapping = new ConcurrentHashMap<>();
@@ -406,18 +418,64 @@ public enum  SolrClientServiceImpl {
 
     public void insertDocuments(String table, List<SiddhiSolrDocument> docs, boolean commitAsync)
             throws SolrClientServiceException {
+        insertDocuments(table, docs, new CommitPolicy.Builder().commitAsync(commitAsync).build());
+    }
+
+    public void insertDocuments(String table, List<SiddhiSolrDocument> docs, CommitPolicy commitPolicy)
+            throws SolrClientServiceException {
         try {
             SiddhiSolrClient client = getSolrServiceClientByCollection(table);
-            client.add(table, SolrTableUtils.getSolrInputDocuments(docs));
-            if (!commitAsync) {
-                client.commit(table);
+            if (commitPolicy.isCommitWithin()) {
+                client.add(table, SolrTableUtils.getSolrInputDocuments(docs), commitPolicy.getCommitWithinMs());
+            } else {
+                client.add(table, SolrTableUtils.getSolrInputDocuments(docs));
             }
+            commitIfRequired(client, table, commitPolicy);
         } catch (SolrServerException | IOException e) {
             throw new SolrClientServiceException("Error while inserting the documents to index for table: " +
                     table + ", error: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Sends the given documents, deletes by id and deletes by query in a single update request. Solr applies the
+     * documents of the request before the deletes, so the ids of the given documents should not be deleted.
+     *
+     * @param table         the table
+     * @param docs          the documents to be added or updated
+     * @param deleteIds     the ids of the documents to be deleted
+     * @param deleteQueries the queries matching the documents to be deleted
+     * @param commitPolicy  the commit policy of the table
+     */
+    public void updateDocuments(String table, List<SiddhiSolrDocument> docs, List<String> deleteIds,
+                                List<String> deleteQueries, CommitPolicy commitPolicy)
+            throws SolrClientServiceException {
+        if (docs.isEmpty() && deleteIds.isEmpty() && deleteQueries.isEmpty()) {
+            return;
+        }
+        SiddhiSolrClient client = getSolrServiceClientByCollection(table);
+        UpdateRequest request = new UpdateRequest();
+        if (!docs.isEmpty()) {
+            request.add(SolrTableUtils.getSolrInputDocuments(docs));
+        }
+        if (!deleteIds.isEmpty()) {
+            request.deleteById(deleteIds);
+        }
+        for (String deleteQuery : deleteQueries) {
+            request.deleteByQuery(deleteQuery);
+        }
+        if (commitPolicy.isCommitWithin()) {
+            request.setCommitWithin(commitPolicy.getCommitWithinMs());
+        }
+        try {
+            request.process(client, table);
+            commitIfRequired(client, table, commitPolicy);
+        } catch (SolrServerException | IOException e) {
+            throw new SolrClientServiceException("Error while updating the documents of index for table: " +
+                    table + ", error: " + e.getMessage(), e);
+        }
+    }
+
     public void deleteDocuments(String table, List<String> ids, boolean commitAsync) throws SolrClientServiceException {
         if (ids != null && !ids.isEmpty()) {
             SiddhiSolrClient client = getSolrServiceClientByCollection(table);
@@ -448,6 +506,77 @@ public enum  SolrClientServiceImpl {
         }
     }
 
+    /**
+     * Checks whether any document of the given table matches the given search request, without fetching any
+     * documents.
+     */
+    public boolean containsDocuments(String table, SolrQuery query) throws SolrClientServiceException {
+        SiddhiSolrClient client = getSolrServiceClientByCollection(table);
+        query.setRows(0);
+        try {
+            return client.query(table, query).getResults().getNumFound() > 0;
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new SolrClientServiceException("Error while checking the existence of documents in table: " +
+                    table + ", error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Computes the given JSON facet request over the documents of the given table which match the given search
+     * request, without fetching any documents.
+     *
+     * @return the facets of the response, which at least carry the count of the matching documents
+     */
+    @SuppressWarnings("unchecked")
+    public NamedList<Object> getFacets(String table, SolrQuery query, String facet) throws SolrClientServiceException {
+        SiddhiSolrClient client = getSolrServiceClientByCollection(table);
+        query.setRows(0);
+        query.set(JSON_FACET_PARAM, facet);
+        try {
+            QueryResponse response = client.query(table, query);
+            NamedList<Object> facets = (NamedList<Object>) response.getResponse().get(FACETS);
+            if (facets == null) {
+                facets = new NamedList<>();
+                facets.add(FACET_COUNT, response.getResults().getNumFound());
+            }
+            return facets;
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new SolrClientServiceException("Error while computing the facets of documents in table: " +
+                    table + ", error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fetches the documents with the given ids through the real-time get handler, which does not search or score
+     * and also returns the documents which are not committed yet.
+     */
+    public SolrDocumentList getDocumentsById(String table, Collection<String> ids, String[] fields)
+            throws SolrClientServiceException {
+        SiddhiSolrClient client = getSolrServiceClientByCollection(table);
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        if (fields != null) {
+            params.set(CommonParams.FL, fields);
+        }
+        try {
+            return client.getById(table, ids, params);
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new SolrClientServiceException("Error while fetching documents by id from table: " + table +
+                    ", error: " + e.getMessage(), e);
+        }
+    }
+
+    private void commitIfRequired(SiddhiSolrClient client, String table, CommitPolicy commitPolicy)
+            throws SolrServerException, IOException {
+        if (commitPolicy.isExplicitCommit()) {
+            if (commitPolicy.isSoftCommit() || !commitPolicy.isOpenSearcher()) {
+                client.commit(table, true, commitPolicy.isOpenSearcher(), commitPolicy.isSoftCommit(),
+                        commitPolicy.isOpenSearcher());
+            } else {
+                client.commit(table);
+            }
+        }
+    }
+
     public void destroy() throws SolrClientServiceException {
         try {
             if (indexerClient != null) {
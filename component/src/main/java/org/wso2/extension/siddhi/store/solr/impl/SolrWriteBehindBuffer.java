@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.solr.common.SolrException;
+import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocument;
+import org.wso2.extension.siddhi.store.solr.beans.SolrSchemaField;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrClientServiceException;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrTableException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class represents a bounded write-behind buffer which collects the documents added to a solr table and
+ * writes them to solr in batches from a set of background flusher threads.
+ * <p>
+ * The buffer is split into a shard for each flusher by the record id of the documents, and each shard is only
+ * written by its own flusher, so the documents of a record are written in the order they were added.
+ * <p>
+ * Each added document is tagged with the current flush epoch. A flush starts a new epoch and only waits for the
+ * documents of the earlier epochs, so the documents added while it waits do not hold it back.
+ */
+public class SolrWriteBehindBuffer {
+
+    private static final Log log = LogFactory.getLog(SolrWriteBehindBuffer.class);
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+    private final String collection;
+    private final BatchWriter writer;
+    private final Shard[] shards;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final ExecutorService flushers;
+    private final Object pendingLock = new Object();
+    private final TreeMap<Long, Long> pendingCounts = new TreeMap<>();
+    private volatile long epoch;
+    private volatile boolean running;
+
+    public SolrWriteBehindBuffer(String collection, int queueSize, int batchSize, long lingerMs, int flusherCount,
+                                 BatchWriter writer) {
+        this.collection = collection;
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.shards = new Shard[flusherCount];
+        for (int i = 0; i < flusherCount; i++) {
+            shards[i] = new Shard(Math.max(1, (queueSize + flusherCount - 1) / flusherCount));
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flushers = Executors.newFixedThreadPool(flusherCount, runnable -> {
+            Thread thread = new Thread(runnable, "siddhi-solr-write-behind-" + collection + "-" +
+                    threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.running = true;
+        for (Shard shard : shards) {
+            flushers.execute(() -> runFlusher(shard));
+        }
+    }
+
+    /**
+     * Adds the given documents to the buffer, blocking the caller while the buffer is full.
+     *
+     * @param docs the documents to be written to solr
+     */
+    public void add(List<SiddhiSolrDocument> docs) {
+        if (!running) {
+            throw new SolrTableException("Write-behind buffer of collection: " + collection + " is already closed");
+        }
+        long addEpoch;
+        synchronized (pendingLock) {
+            addEpoch = epoch;
+            pendingCounts.merge(addEpoch, (long) docs.size(), Long::sum);
+        }
+        List<List<BufferedDocument>> shardDocs = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            shardDocs.add(new ArrayList<>());
+        }
+        for (SiddhiSolrDocument doc : docs) {
+            shardDocs.get(getShardIndex(doc)).add(new BufferedDocument(doc, addEpoch));
+        }
+        int added = 0;
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                for (BufferedDocument bufferedDocument : shardDocs.get(i)) {
+                    shards[i].put(bufferedDocument);
+                    added++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markWritten(addEpoch, docs.size() - added);
+            throw new SolrTableException("Interrupted while adding documents to the write-behind buffer of " +
+                    "collection: " + collection, e);
+        }
+    }
+
+    /**
+     * Waits till the flusher threads have written all the documents added before the flush, so that the subsequent
+     * operations observe them. The flushers stop waiting for their batches to fill up while a flush waits for them.
+     */
+    public void flush() {
+        long flushEpoch;
+        synchronized (pendingLock) {
+            flushEpoch = epoch++;
+        }
+        for (Shard shard : shards) {
+            shard.wakeUp();
+        }
+        synchronized (pendingLock) {
+            while (isPending(flushEpoch)) {
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new documents and waits till the flusher threads have written the buffered documents.
+     */
+    public void close() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.wakeUp();
+        }
+        flushers.shutdown();
+        try {
+            if (!flushers.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("Write-behind flushers of collection: " + collection + " did not finish within " +
+                        SHUTDOWN_TIMEOUT_MS + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushers.shutdownNow();
+        for (Shard shard : shards) {
+            // the documents of a shard are only written by its own flusher, so they are dropped if it is still busy
+            List<BufferedDocument> remaining = shard.drainAll();
+            if (!remaining.isEmpty()) {
+                log.error("Dropping " + remaining.size() + " buffered records of Solr Event Table: " + collection +
+                        ", since the write-behind flusher did not finish writing the earlier records");
+                synchronized (pendingLock) {
+                    for (BufferedDocument bufferedDocument : remaining) {
+                        decrementPending(bufferedDocument.epoch, 1);
+                    }
+                    pendingLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void runFlusher(Shard shard) {
+        try {
+            List<BufferedDocument> batch = shard.takeBatch();
+            while (batch != null) {
+                write(batch);
+                batch = shard.takeBatch();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int getShardIndex(SiddhiSolrDocument doc) {
+        Object id = doc.getFieldValue(SolrSchemaField.FIELD_ID);
+        return id == null ? 0 : Math.floorMod(id.hashCode(), shards.length);
+    }
+
+    private void write(List<BufferedDocument> batch) {
+        List<SiddhiSolrDocument> docs = new ArrayList<>(batch.size());
+        for (BufferedDocument bufferedDocument : batch) {
+            docs.add(bufferedDocument.document);
+        }
+        try {
+            writer.write(docs);
+        } catch (SolrClientServiceException | SolrException e) {
+            log.error("Error while writing " + docs.size() + " buffered records to Solr Event Table: " +
+                    e.getMessage(), e);
+        } finally {
+            synchronized (pendingLock) {
+                for (BufferedDocument bufferedDocument : batch) {
+                    decrementPending(bufferedDocument.epoch, 1);
+                }
+                pendingLock.notifyAll();
+            }
+        }
+    }
+
+    private boolean isPending(long flushEpoch) {
+        synchronized (pendingLock) {
+            return !pendingCounts.isEmpty() && pendingCounts.firstKey() <= flushEpoch;
+        }
+    }
+
+    private void markWritten(long documentEpoch, long count) {
+        synchronized (pendingLock) {
+            decrementPending(documentEpoch, count);
+            pendingLock.notifyAll();
+        }
+    }
+
+    private void decrementPending(long documentEpoch, long count) {
+        Long pending = pendingCounts.get(documentEpoch);
+        if (pending == null) {
+            return;
+        }
+        if (pending <= count) {
+            pendingCounts.remove(documentEpoch);
+        } else {
+            pendingCounts.put(documentEpoch, pending - count);
+        }
+    }
+
+    /**
+     * Writes a batch of buffered documents to solr.
+     */
+    public interface BatchWriter {
+        void write(List<SiddhiSolrDocument> docs) throws SolrClientServiceException;
+    }
+
+    /**
+     * The bounded queue of the documents written by a single flusher. The flusher waits on the same condition as
+     * the added documents for a flush or close, so that it does not keep lingering while they wait for it.
+     */
+    private class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final ArrayDeque<BufferedDocument> documents;
+        private final int capacity;
+
+        private Shard(int capacity) {
+            this.capacity = capacity;
+            this.documents = new ArrayDeque<>(capacity);
+        }
+
+        private void put(BufferedDocument bufferedDocument) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (documents.size() >= capacity) {
+                    notFull.await();
+                }
+                documents.add(bufferedDocument);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /*
+        Returns the next batch, waiting for it to fill up till the linger time from its first document has passed,
+        or a flush of the document has started, or the buffer is closed. Returns null once the buffer is closed and
+        the shard is empty.
+        */
+        private List<BufferedDocument> takeBatch() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (documents.isEmpty()) {
+                    if (!running) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                long deadline = System.nanoTime() + lingerNanos;
+                long firstEpoch = documents.peek().epoch;
+                while (documents.size() < batchSize && running && epoch <= firstEpoch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    notEmpty.awaitNanos(remaining);
+                }
+                List<BufferedDocument> batch = new ArrayList<>(Math.min(batchSize, documents.size()));
+                while (batch.size() < batchSize && !documents.isEmpty()) {
+                    batch.add(documents.poll());
+                }
+                notFull.signalAll();
+                return batch;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void wakeUp() {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<BufferedDocument> drainAll() {
+            lock.lock();
+            try {
+                List<BufferedDocument> remaining = new ArrayList<>(documents);
+                documents.clear();
+                notFull.signalAll();
+                return remaining;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static class BufferedDocument {
+        private final SiddhiSolrDocument document;
+        private final long epoch;
+
+        private BufferedDocument(SiddhiSolrDocument document, long epoch) {
+            this.document = document;
+            this.epoch = epoch;
+        }
+    }
+}
@@ -31,9 +31,25 @@ public class SolrTableConstants {
     public static final String ANNOTATION_ELEMENT_CONFIGSET = "base.config";
     public static final String ANNOTATION_ELEMENT_COMMIT_ASYNC = "commit.async";
     public static final String ANNOTATION_ELEMENT_MERGE_SCHEMA = "merge.schema";
+    public static final String ANNOTATION_ELEMENT_COMMIT_WITHIN_MS = "commit.within.ms";
+    public static final String ANNOTATION_ELEMENT_COMMIT_SOFT = "commit.soft";
+    public static final String ANNOTATION_ELEMENT_COMMIT_OPEN_SEARCHER = "commit.open.searcher";
+    public static final String ANNOTATION_ELEMENT_READ_MODE = "read.mode";
+    public static final String ANNOTATION_ELEMENT_READ_EXPORT_SORT = "read.export.sort";
+    public static final String ANNOTATION_ELEMENT_READ_PREFETCH_DEPTH = "read.prefetch.depth";
+    public static final String ANNOTATION_ELEMENT_FACET_APPROXIMATE = "facet.approximate";
+    public static final String ANNOTATION_ELEMENT_CONDITION_OBJECT_TERMS = "condition.object.terms";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND = "write.behind";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_QUEUE_SIZE = "write.behind.queue.size";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_BATCH_SIZE = "write.behind.batch.size";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_LINGER_MS = "write.behind.linger.ms";
+    public static final String ANNOTATION_ELEMENT_WRITE_BEHIND_FLUSHERS = "write.behind.flushers";
 
     public static final String PROPERTY_READ_BATCH_SIZE = "read.batch.size";
     public static final String PROPERTY_UPDATE_BATCH_SIZE = "update.batch.size";
+    public static final String PROPERTY_DELETE_QUERY_BATCH_SIZE = "delete.query.batch.size";
+    public static final String PROPERTY_UPDATE_KEY_BATCH_SIZE = "update.key.batch.size";
+    public static final String PROPERTY_READ_CURSOR_PAGING = "read.cursor.paging";
     public static final String PROPERTY_DOMAIN_IDENTIFIER = "solr.domain.identifier";
 
     public static final String DEFAULT_ZOOKEEPER_URL = "localhost:9983";
@@ -41,7 +57,16 @@ public class SolrTableConstants {
     public static final String DEFAULT_REPLICAS_COUNT = "1";
     public static final String DEFAULT_READ_ITERATOR_BATCH_SIZE = "1000";
     public static final String DEFAULT_UPDATE_BATCH_SIZE = "1000";
+    public static final String DEFAULT_DELETE_QUERY_BATCH_SIZE = "100";
+    public static final String DEFAULT_UPDATE_KEY_BATCH_SIZE = "1000";
+    public static final String DEFAULT_READ_CURSOR_PAGING = "true";
     public static final String DEFAULT_SOLR_BASE_CONFIG_NAME = "gettingstarted";
     public static final String DEFAULT_PROPERTY_DOMAIN_IDENTIFIER = "DEFAULT";
+    public static final String READ_MODE_SELECT = "select";
+    public static final String READ_MODE_EXPORT = "export";
+    public static final String DEFAULT_WRITE_BEHIND_QUEUE_SIZE = "10000";
+    public static final String DEFAULT_WRITE_BEHIND_BATCH_SIZE = "1000";
+    public static final String DEFAULT_WRITE_BEHIND_LINGER_MS = "100";
+    public static final String DEFAULT_WRITE_BEHIND_FLUSHERS = "1";
 
 }
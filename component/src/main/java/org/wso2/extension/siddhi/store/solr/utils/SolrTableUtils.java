@@ -21,9 +21,11 @@ package org.wso2.extension.siddhi.store.solr.utils;
 import io.siddhi.query.api.definition.Attribute;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.SolrInputField;
 import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition;
+import org.wso2.extension.siddhi.store.solr.SolrQueryTemplate;
 import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocument;
 import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocumentField;
 import org.wso2.extension.siddhi.store.solr.beans.SolrSchema;
@@ -34,18 +36,21 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.regex.Pattern;
 
 /**
  * This class contains the utility methods required by the indexer service.
  */
 public class SolrTableUtils {
 
+    private static final String KEY_PARAM_PREFIX = "k";
+    private static final String KEY_SEPARATOR_PARAM = "ks";
+    private static final String KEY_VALUE_SEPARATOR = "\u001F";
     private static Log log = LogFactory.getLog(SolrTableUtils.class);
     private static ThreadLocal<SecureRandom> secureRandom = new ThreadLocal<SecureRandom>() {
         protected SecureRandom initialValue() {
@@ -138,20 +143,88 @@ public class SolrTableUtils {
 
     public static String resolveCondition(SolrCompiledCondition compiledCondition, Map<String, Object> parameters,
                                           String collection) {
-        String condition = compiledCondition.getCompiledQuery();
+        return resolveCondition(compiledCondition, parameters, collection, null);
+    }
+
+    /**
+     * Creates the search request matching the documents of which the given fields have any of the given tuples of
+     * values. A single field is matched with the terms query parser, and the tuples of multiple fields are matched
+     * with a disjunction of term conjunctions. The values are passed as request parameters, so they are not escaped.
+     *
+     * @param fields the key fields
+     * @param keys   the tuples of values of the key fields, in the order of the fields
+     * @return the search request
+     */
+    public static SolrQuery createKeyQuery(List<String> fields, Collection<List<String>> keys) {
+        SolrQuery query = new SolrQuery();
+        StringBuilder builder = new StringBuilder();
+        if (fields.size() == 1) {
+            StringBuilder values = new StringBuilder();
+            for (List<String> key : keys) {
+                if (values.length() > 0) {
+                    values.append(KEY_VALUE_SEPARATOR);
+                }
+                values.append(key.get(0));
+            }
+            builder.append("{!terms f=").append(fields.get(0)).append(" separator=$").append(KEY_SEPARATOR_PARAM)
+                    .append(" v=$").append(KEY_PARAM_PREFIX).append('}');
+            query.set(KEY_SEPARATOR_PARAM, KEY_VALUE_SEPARATOR);
+            query.set(KEY_PARAM_PREFIX, values.toString());
+        } else {
+            int keyIndex = 0;
+            for (List<String> key : keys) {
+                builder.append(keyIndex > 0 ? " OR (" : "(");
+                for (int i = 0; i < fields.size(); i++) {
+                    String parameterName = KEY_PARAM_PREFIX + keyIndex + "_" + i;
+                    builder.append(i > 0 ? " +{!term f=" : "+{!term f=").append(fields.get(i)).append(" v=$")
+                            .append(parameterName).append('}');
+                    query.set(parameterName, key.get(i));
+                }
+                builder.append(')');
+                keyIndex++;
+            }
+        }
+        query.setQuery(builder.toString());
+        return query;
+    }
+
+    /**
+     * Resolves the condition into a search request, with the cacheable conjuncts of the condition as filter queries
+     * and the values dereferenced by the condition as request parameters.
+     */
+    public static SolrQuery resolveQuery(SolrCompiledCondition compiledCondition, Map<String, Object> parameters,
+                                         String collection) {
+        Map<String, String> requestParameters = new HashMap<>();
+        SolrQuery query = new SolrQuery();
+        SolrQueryTemplate mainQuery = compiledCondition.getMainQueryTemplate();
+        query.setQuery(mainQuery.isEmpty() ? "*:*" : mainQuery.fill(parameters, requestParameters));
+        for (SolrQueryTemplate filterQuery : compiledCondition.getFilterQueryTemplates()) {
+            query.addFilterQuery(filterQuery.fill(parameters, requestParameters));
+        }
+        for (Map.Entry<String, String> requestParameter : requestParameters.entrySet()) {
+            query.set(requestParameter.getKey(), requestParameter.getValue());
+        }
         if (log.isDebugEnabled()) {
-            log.debug("compiled condition for collection '" + collection + "': " + condition);
+            log.debug("Resolved query for collection '" + collection + "': " + query);
         }
-        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
-            String name = entry.getKey();
-            Object value = entry.getValue();
-            String namePlaceholder = Pattern.quote("[" + name + "]");
-            condition = condition.replaceAll(namePlaceholder, value.toString());
+        return query;
+    }
+
+    /**
+     * Resolves the condition for a query request, putting the values dereferenced by the condition to the given
+     * request parameters. When the request parameters are null, all the values are placed in the condition.
+     */
+    public static String resolveCondition(SolrCompiledCondition compiledCondition, Map<String, Object> parameters,
+                                          String collection, Map<String, String> requestParameters) {
+        SolrQueryTemplate template = compiledCondition.getQueryTemplate();
+        if (log.isDebugEnabled()) {
+            log.debug("compiled condition for collection '" + collection + "': " + template);
         }
         //set solr "select all" query if condition is not provided
-        if (condition == null || condition.isEmpty()) {
-            condition = "*:*";
+        if (template.isEmpty()) {
+            return "*:*";
         }
+        String condition = template.fill(parameters, requestParameters);
         if (log.isDebugEnabled()) {
             log.debug("Resolved condition for collection '" + collection + "': " + condition);
         }
@@ -159,10 +232,16 @@ public class SolrTableUtils {
     }
 
     public static String generateRecordIdFromPrimaryKeyValues(SiddhiSolrDocument document, List<String> primaryKeys) {
+        Object[] values = new Object[primaryKeys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = document.getFieldValue(primaryKeys.get(i));
+        }
+        return generateRecordIdFromValues(values);
+    }
+
+    public static String generateRecordIdFromValues(Object[] primaryKeyValues) {
         StringBuilder builder = new StringBuilder();
-        Object obj;
-        for (String key : primaryKeys) {
-            obj = document.getFieldValue(key);
+        for (Object obj : primaryKeyValues) {
             if (obj != null) {
                 builder.append(obj.toString());
             }
@@ -180,6 +259,32 @@ public class SolrTableUtils {
         return new UUID(buff.getLong(), buff.getLong()).toString();
     }
 
+    /**
+     * Converts a value read from solr to the java type of the given siddhi attribute type. The values streamed
+     * through the export handler are parsed from JSON, so integer and float values are returned as long and double.
+     */
+    public static Object convertToAttributeType(Object value, Attribute.Type type) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case INT:
+                return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString());
+            case LONG:
+                return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+            case FLOAT:
+                return value instanceof Number ? ((Number) value).floatValue() : Float.valueOf(value.toString());
+            case DOUBLE:
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(value.toString());
+            case BOOL:
+                return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+            case STRING:
+                return value.toString();
+            default:
+                return value;
+        }
+    }
+
     public static String normalizeURL(String solrServerUrl) {
         String serverUrl = solrServerUrl;
         if (serverUrl.endsWith("/")) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.benchmark;
+
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.extension.siddhi.store.solr.SolrRecordIterator;
+import org.wso2.extension.siddhi.store.solr.impl.SiddhiSolrClient;
+import org.wso2.extension.siddhi.store.solr.test.InMemorySolrClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the per record cost of iterating over solr documents with SolrRecordIterator, against the
+ * previous synchronized and recursive iterator. The pages are served from memory, so only the client side cost of
+ * the iterator is measured. Run with the main method to include the allocation rate per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SolrRecordIteratorBenchmark {
+
+    private static final String COLLECTION = "BENCHMARK";
+    private static final int RECORD_COUNT = 100000;
+    private static final int BATCH_SIZE = 1000;
+    private List<Attribute> attributes;
+    private String[] fields;
+    private SiddhiSolrClient solrClient;
+
+    @Setup
+    public void setUp() {
+        attributes = Arrays.asList(new Attribute("symbol", Attribute.Type.STRING),
+                new Attribute("price", Attribute.Type.FLOAT), new Attribute("volume", Attribute.Type.LONG),
+                new Attribute("exchange", Attribute.Type.STRING), new Attribute("active", Attribute.Type.BOOL));
+        fields = new String[]{"symbol", "price", "volume", "exchange", "active"};
+        List<SolrDocument> documents = new ArrayList<>(RECORD_COUNT);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            SolrDocument document = new SolrDocument();
+            document.setField("id", String.valueOf(i));
+            document.setField("symbol", "SYM" + (i % 500));
+            document.setField("price", i * 0.5f);
+            document.setField("volume", (long) i);
+            document.setField("exchange", "EX" + (i % 3));
+            document.setField("active", i % 2 == 0);
+            documents.add(document);
+        }
+        solrClient = new SiddhiSolrClient("DEFAULT", new InMemorySolrClient(documents, BATCH_SIZE));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void solrRecordIterator(Blackhole blackhole) throws IOException {
+        SolrRecordIterator iterator = new SolrRecordIterator.Builder(new SolrQuery("*:*"), solrClient, COLLECTION,
+                attributes).batchSize(BATCH_SIZE).fields(fields).build();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+        iterator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void legacySolrRecordIterator(Blackhole blackhole) {
+        LegacySolrRecordIterator iterator = new LegacySolrRecordIterator(solrClient, BATCH_SIZE, attributes);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SolrRecordIteratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+
+    /**
+     * The iterator implementation used before the hot path rework, kept as the baseline of the benchmark.
+     */
+    private static class LegacySolrRecordIterator {
+        private SiddhiSolrClient solrClient;
+        private int batchSize;
+        private List<Attribute> attributes;
+        private SolrDocumentList solrDocuments;
+        private Iterator<SolrDocument> solrDocumentIterator;
+        private SolrQuery query;
+        private int start;
+
+        private LegacySolrRecordIterator(SiddhiSolrClient solrClient, int batchSize, List<Attribute> attributes) {
+            this.solrClient = solrClient;
+            this.batchSize = batchSize;
+            this.attributes = attributes;
+            this.query = new SolrQuery("*:*");
+        }
+
+        public boolean hasNext() {
+            synchronized (this) {
+                try {
+                    if (solrDocumentIterator != null && solrDocuments != null) {
+                        if (solrDocumentIterator.hasNext()) {
+                            return true;
+                        } else if (solrDocuments.size() < batchSize) {
+                            return false;
+                        } else {
+                            return readBatches();
+                        }
+                    } else {
+                        return readBatches();
+                    }
+                } catch (SolrServerException | IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private boolean readBatches() throws SolrServerException, IOException {
+            query.setStart(start);
+            query.setRows(batchSize);
+            start += batchSize;
+            solrDocuments = solrClient.query(COLLECTION, query).getResults();
+            solrDocumentIterator = solrDocuments.iterator();
+            return hasNext();
+        }
+
+        public Object[] next() {
+            synchronized (this) {
+                List<Object> fieldValues = new ArrayList<>();
+                if (hasNext() && solrDocumentIterator != null) {
+                    SolrDocument solrDocument = solrDocumentIterator.next();
+                    for (Attribute attribute : attributes) {
+                        fieldValues.add(solrDocument.getFieldValue(attribute.getName()));
+                    }
+                }
+                return fieldValues.toArray();
+            }
+        }
+    }
+}
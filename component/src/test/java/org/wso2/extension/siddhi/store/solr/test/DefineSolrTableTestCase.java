@@ -20,6 +20,7 @@ package org.wso2.extension.siddhi.store.solr.test;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import org.awaitility.Awaitility;
 import org.awaitility.Duration;
 import org.testng.Assert;
@@ -212,4 +213,38 @@ public class DefineSolrTableTestCase {
             siddhiAppRuntime.shutdown();
         }
     }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class,
+            expectedExceptionsMessageRegExp = ".*'read.prefetch.depth'.*")
+    public void testDefineSolrTableWithInvalidPrefetchDepth() {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String defineQuery =
+                "@store(type='solr', collection='TEST7', shards='1', replicas='1', " +
+                "schema ='time long stored, date string stored', read.prefetch.depth='-1') " +
+                "define table Footable(time long, date string);";
+        siddhiManager.createSiddhiAppRuntime(defineQuery);
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class,
+            expectedExceptionsMessageRegExp = ".*'commit.within.ms'.*")
+    public void testDefineSolrTableWithInvalidCommitWithin() {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String defineQuery =
+                "@store(type='solr', collection='TEST8', shards='1', replicas='1', " +
+                "schema ='time long stored, date string stored', commit.within.ms='soon') " +
+                "define table Footable(time long, date string);";
+        siddhiManager.createSiddhiAppRuntime(defineQuery);
+    }
+
+    @Test(expectedExceptions = SiddhiAppCreationException.class,
+            expectedExceptionsMessageRegExp = ".*'commit.soft'.*")
+    public void testDefineSolrTableWithSoftCommitWithoutSearcher() {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String defineQuery =
+                "@store(type='solr', collection='TEST9', shards='1', replicas='1', " +
+                "schema ='time long stored, date string stored', commit.async='false', commit.soft='true', " +
+                "commit.open.searcher='false') " +
+                "define table Footable(time long, date string);";
+        siddhiManager.createSiddhiAppRuntime(defineQuery);
+    }
 }
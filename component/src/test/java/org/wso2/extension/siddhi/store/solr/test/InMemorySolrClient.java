@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.test;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+
+import java.util.List;
+
+/**
+ * Solr client which serves the documents from memory for both cursor and offset based paging requests, so that the
+ * reads can be tested and measured without a solr server. The pages of the batch size are built upfront, so that
+ * serving them does not add to the cost of the reads.
+ */
+public class InMemorySolrClient extends SolrClient {
+    private static final long serialVersionUID = 1L;
+    private static final String RESPONSE = "response";
+    private final List<SolrDocument> documents;
+    private final SolrDocumentList[] pages;
+    private final int batchSize;
+
+    public InMemorySolrClient(List<SolrDocument> documents, int batchSize) {
+        this.documents = documents;
+        this.batchSize = batchSize;
+        this.pages = new SolrDocumentList[(documents.size() + batchSize - 1) / batchSize];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = createPage(i * batchSize, batchSize);
+        }
+    }
+
+    @Override
+    public NamedList<Object> request(SolrRequest request, String collection) {
+        SolrParams params = request.getParams();
+        String cursorMark = params.get(CursorMarkParams.CURSOR_MARK_PARAM);
+        int start;
+        if (cursorMark != null) {
+            start = CursorMarkParams.CURSOR_MARK_START.equals(cursorMark) ? 0 : Integer.parseInt(cursorMark);
+        } else {
+            start = params.getInt(CommonParams.START, 0);
+        }
+        int rows = params.getInt(CommonParams.ROWS, batchSize);
+        SolrDocumentList page;
+        if (start % batchSize == 0 && rows == batchSize && start / batchSize < pages.length) {
+            page = pages[start / batchSize];
+        } else {
+            page = createPage(start, rows);
+        }
+        NamedList<Object> response = new NamedList<>();
+        response.add(RESPONSE, page);
+        if (cursorMark != null) {
+            response.add(CursorMarkParams.CURSOR_MARK_NEXT, page.isEmpty() ? cursorMark :
+                    String.valueOf(start + page.size()));
+        }
+        return response;
+    }
+
+    private SolrDocumentList createPage(int start, int rows) {
+        SolrDocumentList page = new SolrDocumentList();
+        page.setNumFound(documents.size());
+        page.setStart(start);
+        for (int i = start; i < documents.size() && i - start < rows; i++) {
+            page.add(documents.get(i));
+        }
+        return page;
+    }
+
+    @Override
+    public void close() {
+        //ignore
+    }
+}
@@ -20,11 +20,18 @@ package org.wso2.extension.siddhi.store.solr.test;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.awaitility.Duration;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.wso2.extension.siddhi.store.solr.exceptions.SolrClientServiceException;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrTableException;
 import org.wso2.extension.siddhi.store.solr.impl.SolrClientServiceImpl;
 
+import java.io.IOException;
+
 /**
  * This test class contains the test cases related to inserting the events to solr event table
  */
@@ -169,4 +176,48 @@ public class InsertToSolrTableTestCase {
         InputHandler fooTable = siddhiAppRuntime.getInputHandler("FooStream");
         simulateEvents2(indexerService, siddhiAppRuntime, fooTable);
     }
+
+    @Test
+    public void insertEventsToSolrEventTableWithWriteBehind() throws InterruptedException,
+            SolrClientServiceException, SolrServerException, IOException {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        SolrClientServiceImpl indexerService = SolrClientServiceImpl.INSTANCE;
+        String defineQuery =
+                "define stream FooStream (time long, date string);" +
+                "@store(type='solr', url='localhost:9983', collection='TEST2_WB', base.config='gettingstarted', " +
+                "shards='2', replicas='2', schema='time long stored, date string stored', commit.async='false', " +
+                "write.behind='true', write.behind.batch.size='2', write.behind.linger.ms='50') " +
+                "define table FooTable(time long, date string);";
+        String insertQuery = "" +
+                             "@info(name = 'query1') " +
+                             "from FooStream   " +
+                             "insert into FooTable ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(defineQuery + insertQuery);
+        InputHandler fooTable = siddhiAppRuntime.getInputHandler("FooStream");
+        try {
+            siddhiAppRuntime.start();
+            fooTable.send(new Object[]{45324211L, "1970-03-01 23:34:34 456"});
+            fooTable.send(new Object[]{Long.MIN_VALUE, "2016-03-01 23:34:34 456"});
+            fooTable.send(new Object[]{Long.MAX_VALUE, "2005-03-01 23:34:34 456"});
+            SolrTestUtils.waitTillEventsPersist(indexerService, 3, "TEST2_WB", Duration.FIVE_SECONDS);
+            Assert.assertEquals(SolrTestUtils.getDocCount(indexerService, "TEST2_WB"), 3,
+                                "Buffered inserts were not written");
+        } finally {
+            indexerService.deleteCollection("TEST2_WB");
+            siddhiAppRuntime.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = {SiddhiAppCreationException.class, SolrTableException.class})
+    public void defineSolrEventTableWithInvalidWriteBehindBatchSize() {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String defineQuery =
+                "define stream FooStream (time long, date string);" +
+                "@store(type='solr', url='localhost:9983', collection='TEST3_WB', base.config='gettingstarted', " +
+                "shards='2', replicas='2', schema='time long stored, date string stored', " +
+                "write.behind='true', write.behind.batch.size='0') " +
+                "define table FooTable(time long, date string);";
+        siddhiManager.createSiddhiAppRuntime(defineQuery);
+    }
 }
@@ -20,6 +20,7 @@ package org.wso2.extension.siddhi.store.solr.test;
 
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.exception.SiddhiAppCreationException;
 import io.siddhi.core.stream.input.InputHandler;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.awaitility.Duration;
@@ -345,4 +346,69 @@ public class SetUpdateSolrTableTestCase {
             siddhiAppRuntime.shutdown();
         }
     }
+
+    @Test(testName = "setUpdateSolrTableTestCase8",
+            description = "Incrementing a table attribute by a stream attribute")
+    public void setUpdateSolrTableTestCase8()
+            throws InterruptedException, SQLException, SolrServerException, IOException, SolrClientServiceException {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                         "define stream StockStream (symbol string, price float, volume long); " +
+                         "define stream UpdateStockStream (symbol string, price float, volume long); " +
+                         "@Store(type='solr', url='localhost:9983', collection='TEST59', base" +
+                         ".config='gettingstarted', shards='2', replicas='2', schema='symbol string stored, price" +
+                         " float stored, volume long stored', commit.async='false')" +
+                         "define table StockTable (symbol string, price float, volume long); ";
+        String query = "" +
+                       "@info(name = 'query1') " +
+                       "from StockStream " +
+                       "insert into StockTable ;" +
+                       "" +
+                       "@info(name = 'query2') " +
+                       "from UpdateStockStream " +
+                       "update StockTable " +
+                       "set StockTable.volume = StockTable.volume + volume " +
+                       "   on StockTable.symbol == symbol ;";
+
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(streams + query);
+        try {
+            InputHandler stockStream = siddhiAppRuntime.getInputHandler("StockStream");
+            InputHandler updateStockStream = siddhiAppRuntime.getInputHandler("UpdateStockStream");
+            siddhiAppRuntime.start();
+
+            stockStream.send(new Object[]{"WSO2", 55.6f, 100L});
+            stockStream.send(new Object[]{"IBM", 75.6f, 100L});
+            stockStream.send(new Object[]{"WSO2", 57.6f, 100L});
+            SolrTestUtils.waitTillEventsPersist(indexerService, 3, "TEST59", Duration.FIVE_SECONDS);
+            updateStockStream.send(new Object[]{"IBM", 75.6f, 50L});
+            updateStockStream.send(new Object[]{"IBM", 75.6f, 50L});
+            SolrTestUtils.waitTillEventsPersist(indexerService, "volume:\"200\"", 1, "TEST59",
+                                                Duration.FIVE_SECONDS);
+            Assert.assertEquals(SolrTestUtils.getDocCount(indexerService, "TEST59"), 3, "Update failed");
+        } finally {
+            indexerService.deleteCollection("TEST59");
+            siddhiAppRuntime.shutdown();
+        }
+    }
+
+    @Test(testName = "setUpdateSolrTableTestCase9",
+            description = "Incrementing a table attribute assigned to another attribute",
+            expectedExceptions = SiddhiAppCreationException.class)
+    public void setUpdateSolrTableTestCase9() {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        String streams = "" +
+                         "define stream UpdateStockStream (symbol string, volume long); " +
+                         "@Store(type='solr', url='localhost:9983', collection='TEST60', base" +
+                         ".config='gettingstarted', shards='2', replicas='2', schema='symbol string stored, volume" +
+                         " long stored, total long stored', commit.async='false')" +
+                         "define table StockTable (symbol string, volume long, total long); ";
+        String query = "" +
+                       "@info(name = 'query1') " +
+                       "from UpdateStockStream " +
+                       "update StockTable " +
+                       "set StockTable.total = StockTable.volume + volume " +
+                       "   on StockTable.symbol == symbol ;";
+
+        siddhiManager.createSiddhiAppRuntime(streams + query);
+    }
 }
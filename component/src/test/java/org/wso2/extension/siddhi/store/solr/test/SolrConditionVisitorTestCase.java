@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.test;
+
+import io.siddhi.core.table.record.ExpressionVisitor.MathOperator;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.expression.condition.Compare;
+import org.apache.solr.common.SolrDocument;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledCondition;
+import org.wso2.extension.siddhi.store.solr.SolrConditionVisitor;
+import org.wso2.extension.siddhi.store.solr.SolrQueryTemplate;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrConditionVisitorException;
+import org.wso2.extension.siddhi.store.solr.utils.SolrTableUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This class represents the tests of the compilation of conditions to solr queries, which do not need a solr server.
+ */
+public class SolrConditionVisitorTestCase {
+
+    @Test
+    public void orQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        or(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                constant("WSO2", Attribute.Type.STRING)),
+                compare(Compare.Operator.EQUAL, storeVariable("country", Attribute.Type.STRING),
+                        constant("LK", Attribute.Type.STRING))).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getCompiledQuery(),
+                "({!term f=symbol v=$p0} OR {!term f=country v=$p1})");
+        Assert.assertEquals(compiledCondition.getQueryTemplate().fill(Collections.emptyMap()),
+                "({!term f=symbol v='WSO2'} OR {!term f=country v='LK'})");
+        Assert.assertTrue(compiledCondition.getMainQueryTemplate().isEmpty());
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().size(), 1);
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().get(0).toString(),
+                "({!term f=symbol v=$p0} OR {!term f=country v=$p1})");
+    }
+
+    @Test
+    public void orMainQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        or(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                streamVariable("symbol1", Attribute.Type.STRING)),
+                compare(Compare.Operator.EQUAL, storeVariable("country", Attribute.Type.STRING),
+                        constant("LK", Attribute.Type.STRING))).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getMainQueryTemplate().toString(),
+                "(({!term f=symbol v=$p0} OR {!term f=country v=$p1}))^=1");
+        Assert.assertEquals(compiledCondition.getQueryTemplate().fill(Collections.singletonMap("symbol1", "IBM")),
+                "({!term f=symbol v='IBM'} OR {!term f=country v='LK'})");
+        Assert.assertTrue(compiledCondition.getFilterQueryTemplates().isEmpty());
+    }
+
+    @Test
+    public void notQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        not(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                constant("WSO2", Attribute.Type.STRING))).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getCompiledQuery(), "*:* -{!term f=symbol v=$p0}");
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().get(0).toString(),
+                "*:* -{!term f=symbol v=$p0}");
+    }
+
+    @Test
+    public void nestedQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        and(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                streamVariable("symbol1", Attribute.Type.STRING)),
+                or(compare(Compare.Operator.EQUAL, storeVariable("country", Attribute.Type.STRING),
+                        constant("LK", Attribute.Type.STRING)),
+                        not(compare(Compare.Operator.EQUAL, storeVariable("volume", Attribute.Type.INT),
+                                constant(100, Attribute.Type.INT))))).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getCompiledQuery(),
+                "+{!term f=symbol v=$p0} +({!term f=country v=$p1} OR (*:* -{!term f=volume v=$p2}))");
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().size(), 1);
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().get(0).toString(),
+                "({!term f=country v=$p0} OR (*:* -{!term f=volume v=$p1}))");
+        Assert.assertEquals(compiledCondition.getMainQueryTemplate().toString(), "({!term f=symbol v=$p2})^=1");
+    }
+
+    @Test
+    public void negatedOrQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        not(or(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                constant("WSO2", Attribute.Type.STRING)),
+                compare(Compare.Operator.EQUAL, storeVariable("country", Attribute.Type.STRING),
+                        streamVariable("country1", Attribute.Type.STRING)))).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getCompiledQuery(),
+                "*:* -{!term f=symbol v=$p0} -{!term f=country v=$p1}");
+        Assert.assertEquals(compiledCondition.getFilterQueryTemplates().get(0).toString(),
+                "*:* -{!term f=symbol v=$p0}");
+        Assert.assertEquals(compiledCondition.getMainQueryTemplate().toString(),
+                "(*:* -{!term f=country v=$p1})^=1");
+    }
+
+    @Test
+    public void doubleNegationQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        not(not(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                constant("WSO2", Attribute.Type.STRING)))).accept(visitor);
+        Assert.assertEquals(visitor.returnCondition(), "{!term f=symbol v=$p0}");
+    }
+
+    @Test
+    public void mergedRangeQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        and(compare(Compare.Operator.GREATER_THAN, storeVariable("volume", Attribute.Type.INT),
+                constant(5, Attribute.Type.INT)),
+                compare(Compare.Operator.LESS_THAN_EQUAL, storeVariable("volume", Attribute.Type.INT),
+                        constant(10, Attribute.Type.INT))).accept(visitor);
+        Assert.assertEquals(visitor.returnCondition(), "volume:{5 TO 10]");
+    }
+
+    @Test
+    public void requestParameterTemplateTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        or(compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                streamVariable("symbol1", Attribute.Type.STRING)),
+                compare(Compare.Operator.EQUAL, storeVariable("country", Attribute.Type.STRING),
+                        constant("LK", Attribute.Type.STRING))).accept(visitor);
+        SolrQueryTemplate template = visitor.returnTemplate();
+        Assert.assertTrue(template.isParameterized());
+        Map<String, String> requestParameters = new HashMap<>();
+        Assert.assertEquals(template.fill(Collections.singletonMap("symbol1", "IBM"), requestParameters),
+                "({!term f=symbol v=$p0} OR {!term f=country v=$p1})");
+        Assert.assertEquals(requestParameters.get("p0"), "IBM");
+        Assert.assertEquals(requestParameters.get("p1"), "LK");
+    }
+
+    @Test
+    public void objectEqualityQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                streamVariable("symbols", Attribute.Type.OBJECT)).accept(visitor);
+        SolrQueryTemplate template = visitor.returnTemplate();
+        Assert.assertEquals(template.toString(), "{!term f=symbol v=$p0}");
+        Assert.assertEquals(template.fill(Collections.singletonMap("symbols", "WSO2")), "{!term f=symbol v='WSO2'}");
+    }
+
+    @Test
+    public void objectTermsQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor(Collections.emptySet(), true);
+        compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                streamVariable("symbols", Attribute.Type.OBJECT)).accept(visitor);
+        SolrQueryTemplate template = visitor.returnTemplate();
+        Assert.assertEquals(template.toString(), "{!terms f=symbol separator=$p0 v=$p1}");
+        Map<String, String> requestParameters = new HashMap<>();
+        template.fill(Collections.singletonMap("symbols", Arrays.asList("WSO2", "IBM")), requestParameters);
+        Assert.assertEquals(requestParameters.get("p1"), "WSO2\u001FIBM");
+    }
+
+    @Test
+    public void inQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        try {
+            visitor.beginVisitIn("SymbolTable");
+            Assert.fail("The 'in' condition was compiled to a query, while the store can not evaluate it");
+        } catch (SolrConditionVisitorException e) {
+            Assert.assertTrue(e.getMessage().contains("'in SymbolTable'"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void keyOfFloatFieldComparedWithDoubleTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        compare(Compare.Operator.EQUAL, storeVariable("price", Attribute.Type.FLOAT),
+                streamVariable("price1", Attribute.Type.DOUBLE)).accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertTrue(compiledCondition.isKeyed());
+        SolrDocument document = new SolrDocument();
+        document.setField("price", 0.1F);
+        Map<String, Object> parameters = Collections.singletonMap("price1", 0.1D);
+        Assert.assertEquals(compiledCondition.resolveKey(parameters), compiledCondition.resolveKey(document),
+                "The key of the event does not match the key of the document stored for it");
+    }
+
+    @Test
+    public void recordIdOfDoubleKeyComparedWithIntTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        compare(Compare.Operator.EQUAL, storeVariable("id", Attribute.Type.DOUBLE),
+                constant(1, Attribute.Type.INT)).accept(visitor);
+        SolrCompiledCondition.Operand operand = visitor.returnEqualityOperands().get("id");
+        SolrCompiledCondition compiledCondition = new SolrCompiledCondition(visitor.returnTemplate(),
+                Collections.singletonList(operand));
+        Assert.assertEquals(compiledCondition.resolveRecordId(Collections.emptyMap()),
+                SolrTableUtils.generateRecordIdFromValues(new Object[]{1.0D}),
+                "The id of the lookup does not match the id of the record stored with the key");
+    }
+
+    @Test
+    public void functionRangeQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        compare(Compare.Operator.LESS_THAN, math(MathOperator.MULTIPLY, storeVariable("volume", Attribute.Type.LONG),
+                storeVariable("price", Attribute.Type.DOUBLE)), streamVariable("limit", Attribute.Type.DOUBLE))
+                .accept(visitor);
+        SolrCompiledCondition compiledCondition = visitor.returnCompiledCondition();
+        Assert.assertEquals(compiledCondition.getQueryTemplate().fill(Collections.singletonMap("limit", 5.0D)),
+                "+volume:[* TO *] +price:[* TO *] +{!frange u=5.0 incu=false v='product(volume,price)'}");
+    }
+
+    @Test
+    public void storeAttributeComparisonQueryTest() {
+        SolrConditionVisitor visitor = new SolrConditionVisitor();
+        compare(Compare.Operator.GREATER_THAN, storeVariable("price", Attribute.Type.DOUBLE),
+                storeVariable("cost", Attribute.Type.FLOAT)).accept(visitor);
+        Assert.assertEquals(visitor.returnCompiledCondition().getQueryTemplate().fill(Collections.emptyMap()),
+                "+price:[* TO *] +cost:[* TO *] +{!frange l=0 incl=false v='sub(price,cost)'}");
+    }
+
+    @Test(expectedExceptions = SolrConditionVisitorException.class)
+    public void stringStoreAttributeComparisonTest() {
+        compare(Compare.Operator.EQUAL, storeVariable("symbol", Attribute.Type.STRING),
+                storeVariable("name", Attribute.Type.STRING)).accept(new SolrConditionVisitor());
+    }
+
+    @Test(expectedExceptions = SolrConditionVisitorException.class)
+    public void integerDivisionTest() {
+        compare(Compare.Operator.GREATER_THAN, math(MathOperator.DIVIDE, storeVariable("volume", Attribute.Type.INT),
+                storeVariable("lots", Attribute.Type.LONG)), constant(2, Attribute.Type.INT))
+                .accept(new SolrConditionVisitor());
+    }
+
+    private static Consumer<SolrConditionVisitor> and(Consumer<SolrConditionVisitor> left,
+                                                      Consumer<SolrConditionVisitor> right) {
+        return visitor -> {
+            visitor.beginVisitAnd();
+            visitor.beginVisitAndLeftOperand();
+            left.accept(visitor);
+            visitor.endVisitAndLeftOperand();
+            visitor.beginVisitAndRightOperand();
+            right.accept(visitor);
+            visitor.endVisitAndRightOperand();
+            visitor.endVisitAnd();
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> or(Consumer<SolrConditionVisitor> left,
+                                                     Consumer<SolrConditionVisitor> right) {
+        return visitor -> {
+            visitor.beginVisitOr();
+            visitor.beginVisitOrLeftOperand();
+            left.accept(visitor);
+            visitor.endVisitOrLeftOperand();
+            visitor.beginVisitOrRightOperand();
+            right.accept(visitor);
+            visitor.endVisitOrRightOperand();
+            visitor.endVisitOr();
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> not(Consumer<SolrConditionVisitor> child) {
+        return visitor -> {
+            visitor.beginVisitNot();
+            child.accept(visitor);
+            visitor.endVisitNot();
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> compare(Compare.Operator operator,
+                                                          Consumer<SolrConditionVisitor> left,
+                                                          Consumer<SolrConditionVisitor> right) {
+        return visitor -> {
+            visitor.beginVisitCompare(operator);
+            visitor.beginVisitCompareLeftOperand(operator);
+            left.accept(visitor);
+            visitor.endVisitCompareLeftOperand(operator);
+            visitor.beginVisitCompareRightOperand(operator);
+            right.accept(visitor);
+            visitor.endVisitCompareRightOperand(operator);
+            visitor.endVisitCompare(operator);
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> math(MathOperator operator, Consumer<SolrConditionVisitor> left,
+                                                       Consumer<SolrConditionVisitor> right) {
+        return visitor -> {
+            visitor.beginVisitMath(operator);
+            visitor.beginVisitMathLeftOperand(operator);
+            left.accept(visitor);
+            visitor.endVisitMathLeftOperand(operator);
+            visitor.beginVisitMathRightOperand(operator);
+            right.accept(visitor);
+            visitor.endVisitMathRightOperand(operator);
+            visitor.endVisitMath(operator);
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> storeVariable(String attributeName, Attribute.Type type) {
+        return visitor -> {
+            visitor.beginVisitStoreVariable("StockTable", attributeName, type);
+            visitor.endVisitStoreVariable("StockTable", attributeName, type);
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> streamVariable(String id, Attribute.Type type) {
+        return visitor -> {
+            visitor.beginVisitStreamVariable(id, "StockStream", id, type);
+            visitor.endVisitStreamVariable(id, "StockStream", id, type);
+        };
+    }
+
+    private static Consumer<SolrConditionVisitor> constant(Object value, Attribute.Type type) {
+        return visitor -> {
+            visitor.beginVisitConstant(value, type);
+            visitor.endVisitConstant(value, type);
+        };
+    }
+}
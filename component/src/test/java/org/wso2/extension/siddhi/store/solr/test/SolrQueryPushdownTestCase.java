@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.test;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.QueryableRecordTableException;
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.store.solr.SolrCompiledSelection;
+import org.wso2.extension.siddhi.store.solr.SolrSelectExpressionVisitor;
+import org.wso2.extension.siddhi.store.solr.config.CollectionConfiguration;
+import org.wso2.extension.siddhi.store.solr.impl.SiddhiSolrClient;
+import org.wso2.extension.siddhi.store.solr.impl.SolrClientServiceImpl;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the tests of the queries which are pushed down to solr, which serve the table from memory
+ * and check the requests sent to solr and the records created from the responses, so they do not need a solr server.
+ */
+public class SolrQueryPushdownTestCase {
+    private static final String ZOOKEEPER_URL = "memory:9983";
+    private static final String COLLECTION = "PUSHDOWN";
+    private static final String JSON_FACET_PARAM = "json.facet";
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private List<SolrDocument> documents;
+    private NamedList<Object> facets;
+    private List<SolrParams> requests;
+
+    @BeforeMethod
+    public void init() {
+        documents = new ArrayList<>();
+        facets = null;
+        requests = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterMethod
+    public void shutdown() throws Exception {
+        if (siddhiAppRuntime != null) {
+            siddhiAppRuntime.shutdown();
+            siddhiAppRuntime = null;
+        }
+        getServiceMapping("tableToConfigMapping").remove(COLLECTION);
+        getServiceMapping("urlToSolrClientMapping").remove(ZOOKEEPER_URL);
+    }
+
+    @Test
+    public void groupByFacetQueryTest() throws Exception {
+        createTable("");
+        facets = facets(5, "g0", Arrays.asList(bucket("WSO2", 3, "s1", 30L, "s2", 57.0D),
+                bucket("IBM", 1, "s1", 10L, "s2", 75.0D)), bucket(null, 1, "s1", 5L, "s2", 50.0D));
+        Event[] events = siddhiAppRuntime.query("from StockTable on price > 10.0 select symbol, sum(volume) as " +
+                "totalVolume, max(price) as maxPrice group by symbol");
+        SolrParams params = getRequest();
+        Assert.assertEquals(params.get(JSON_FACET_PARAM), "{\"g0\":{\"type\":\"terms\",\"field\":\"symbol\"," +
+                "\"sort\":\"index asc\",\"limit\":-1,\"missing\":true,\"facet\":{\"s1\":\"sum(volume)\"," +
+                "\"s2\":\"max(price)\"}}}");
+        Assert.assertEquals(params.get("rows"), "0");
+        Assert.assertEquals(getRecords(events), Arrays.asList(Arrays.asList("WSO2", 30L, 57.0D),
+                Arrays.asList("IBM", 10L, 75.0D), Arrays.asList(null, 5L, 50.0D)));
+    }
+
+    @Test
+    public void nestedGroupByFacetQueryTest() throws Exception {
+        createTable("");
+        NamedList<Object> wso2 = bucket("WSO2", 3);
+        wso2.add("g1", facet(Collections.singletonList(bucket(55.0D, 2, "s2", 20L)), bucket(null, 1, "s2", 10L)));
+        facets = facets(4, "g0", Collections.singletonList(wso2), null);
+        Event[] events = siddhiAppRuntime.query("from StockTable select symbol, price, sum(volume) as totalVolume " +
+                "group by symbol, price");
+        Assert.assertEquals(getRequest().get(JSON_FACET_PARAM), "{\"g0\":{\"type\":\"terms\",\"field\":\"symbol\"," +
+                "\"sort\":\"index asc\",\"limit\":-1,\"missing\":true,\"facet\":{\"g1\":{\"type\":\"terms\"," +
+                "\"field\":\"price\",\"sort\":\"index asc\",\"limit\":-1,\"missing\":true,\"facet\":{\"s2\":" +
+                "\"sum(volume)\"}}}}}");
+        Assert.assertEquals(getRecords(events), Arrays.asList(Arrays.asList("WSO2", 55.0D, 20L),
+                Arrays.asList("WSO2", null, 10L)));
+    }
+
+    @Test
+    public void orderedAndPagedFacetQueryTest() throws Exception {
+        createTable("");
+        facets = facets(13, "g0", Arrays.asList(bucket("WSO2", 5, "s1", 50L), bucket("IBM", 3, "s1", 30L)),
+                bucket(null, 4, "s1", 40L));
+        Event[] events = siddhiAppRuntime.query("from StockTable select symbol, sum(volume) as totalVolume " +
+                "group by symbol order by symbol desc limit 3 offset 1");
+        Assert.assertEquals(getRequest().get(JSON_FACET_PARAM), "{\"g0\":{\"type\":\"terms\",\"field\":\"symbol\"," +
+                "\"sort\":\"index desc\",\"limit\":4,\"offset\":0,\"missing\":true,\"facet\":{\"s1\":" +
+                "\"sum(volume)\"}}}");
+        // the page starts a bucket early and is not full, so the missing bucket follows the last bucket in it
+        Assert.assertEquals(getRecords(events), Arrays.asList(Arrays.asList("IBM", 30L), Arrays.asList(null, 40L)));
+    }
+
+    @Test
+    public void missingBucketOrderedByStatisticTest() {
+        SolrCompiledSelection selection = new SolrCompiledSelection("{}", Collections.singletonList("g0"),
+                Arrays.asList(SolrCompiledSelection.Column.groupBy(0), SolrCompiledSelection.Column.stat("s1")),
+                "s1", true, 2, 1);
+        NamedList<Object> facets = facets(13, "g0", Arrays.asList(bucket("WSO2", 5, "s1", 50L),
+                bucket("IBM", 3, "s1", 30L), bucket("ABC", 1, "s1", 10L)), bucket(null, 4, "s1", 40L));
+        // the missing bucket precedes the second bucket, so it is the first record of the page at the offset
+        Assert.assertEquals(getRecords(selection.createRecords(facets, null)), Arrays.asList(
+                Arrays.asList(null, 40L), Arrays.asList("IBM", 30L)));
+    }
+
+    @Test
+    public void missingBucketAfterPageTest() throws Exception {
+        createTable("");
+        facets = facets(10, "g0", Arrays.asList(bucket("ABC", 1, "s1", 10L), bucket("IBM", 3, "s1", 30L)),
+                bucket(null, 6, "s1", 60L));
+        Event[] events = siddhiAppRuntime.query("from StockTable select symbol, sum(volume) as totalVolume " +
+                "group by symbol order by symbol limit 1");
+        Assert.assertEquals(getRequest().get(JSON_FACET_PARAM), "{\"g0\":{\"type\":\"terms\",\"field\":\"symbol\"," +
+                "\"sort\":\"index asc\",\"limit\":1,\"offset\":0,\"missing\":true,\"facet\":{\"s1\":" +
+                "\"sum(volume)\"}}}");
+        // siddhi orders the null values last, so the missing bucket is not in a full page sorted by the value
+        Assert.assertEquals(getRecords(events), Collections.singletonList(Arrays.asList("ABC", 10L)));
+    }
+
+    @Test
+    public void distinctCountFacetQueryTest() throws Exception {
+        createTable("");
+        facets = facets(3, null, null, null);
+        facets.add("s0", 2L);
+        Event[] events = siddhiAppRuntime.query("from StockTable select distinctCount(symbol) as symbols");
+        Assert.assertEquals(getRequest().get(JSON_FACET_PARAM), "{\"s0\":\"unique(symbol)\"}");
+        Assert.assertEquals(getRecords(events), Collections.singletonList(Collections.singletonList(2L)));
+    }
+
+    @Test
+    public void approximateDistinctCountFacetQueryTest() throws Exception {
+        createTable(", shards='2', facet.approximate='true'");
+        facets = facets(3, null, null, null);
+        facets.add("s0", 2L);
+        siddhiAppRuntime.query("from StockTable select distinctCount(symbol) as symbols");
+        Assert.assertEquals(getRequest().get(JSON_FACET_PARAM), "{\"s0\":\"hll(symbol)\"}");
+    }
+
+    @Test(expectedExceptions = QueryableRecordTableException.class)
+    public void distinctCountOfShardedCollectionTest() {
+        // solr does not count the unique values of many shards exactly, so siddhi aggregates the documents
+        SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor(false, false);
+        visitor.beginVisitAttributeFunction("", "distinctCount");
+        visitor.beginVisitStoreVariable("StockTable", "symbol", Attribute.Type.STRING);
+        visitor.returnFacetFunction();
+    }
+
+    @Test
+    public void percentileFacetFunctionTest() {
+        SolrSelectExpressionVisitor visitor = new SolrSelectExpressionVisitor(false, true);
+        visitor.beginVisitAttributeFunction("math", "percentile");
+        visitor.beginVisitStoreVariable("StockTable", "price", Attribute.Type.DOUBLE);
+        visitor.beginVisitConstant(95.0D, Attribute.Type.DOUBLE);
+        Assert.assertEquals(visitor.returnFacetFunction(), "percentile(price,95.0)");
+    }
+
+    @Test
+    public void selectionQueryTest() throws Exception {
+        createTable("");
+        documents.add(document("WSO2", 55.6D, 100L));
+        documents.add(document("IBM", 75.6D, 10L));
+        Event[] events = siddhiAppRuntime.query("from StockTable on volume > 1L select symbol, volume " +
+                "order by volume desc limit 2");
+        SolrParams params = getRequest();
+        Assert.assertEquals(params.get("q"), "*:*");
+        Assert.assertEquals(params.getParams("fq"), new String[]{"volume:{1 TO *]"});
+        Assert.assertEquals(params.get("sort"), "volume desc,id asc");
+        Assert.assertEquals(params.get("fl"), "symbol,volume");
+        Assert.assertEquals(params.get("rows"), "2");
+        Assert.assertEquals(params.get("cursorMark"), "*");
+        // the documents of the response are in the requested order, so siddhi only projects them
+        Assert.assertEquals(getRecords(events), Arrays.asList(Arrays.asList("WSO2", 100L),
+                Arrays.asList("IBM", 10L)));
+    }
+
+    @Test
+    public void offsetQueryTest() throws Exception {
+        createTable("");
+        documents.add(document("WSO2", 55.6D, 100L));
+        documents.add(document("IBM", 75.6D, 10L));
+        documents.add(document("ABC", 5.6D, 1L));
+        Event[] events = siddhiAppRuntime.query("from StockTable select symbol, price as cost " +
+                "order by symbol limit 1 offset 1");
+        SolrParams params = getRequest();
+        Assert.assertEquals(params.get("q"), "*:*");
+        Assert.assertNull(params.get("fq"));
+        Assert.assertEquals(params.get("sort"), "symbol asc,id asc");
+        Assert.assertEquals(params.get("fl"), "symbol,price");
+        Assert.assertEquals(params.get("start"), "1");
+        Assert.assertEquals(params.get("rows"), "1");
+        Assert.assertNull(params.get("cursorMark"));
+        Assert.assertEquals(getRecords(events), Collections.singletonList(Arrays.asList("IBM", 75.6D)));
+    }
+
+    private void createTable(String options) throws Exception {
+        siddhiAppRuntime = new SiddhiManager().createSiddhiAppRuntime("@Store(type='solr', zookeeper.url='" +
+                ZOOKEEPER_URL + "', collection='" + COLLECTION + "', schema='symbol string stored, price double " +
+                "stored, volume long stored'" + (options.contains("shards") ? "" : ", shards='1'") + options + ") " +
+                "define table StockTable (symbol string, price double, volume long);");
+        InMemorySolrClient solrClient = new InMemorySolrClient(documents, 100) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public NamedList<Object> request(SolrRequest request, String collection) {
+                requests.add(request.getParams());
+                NamedList<Object> response = super.request(request, collection);
+                if (request.getParams().get(JSON_FACET_PARAM) != null && facets != null) {
+                    response.add("facets", facets);
+                }
+                return response;
+            }
+        };
+        getServiceMapping("tableToConfigMapping").put(COLLECTION, new CollectionConfiguration.Builder()
+                .collectionName(COLLECTION).solrServerUrl(ZOOKEEPER_URL).build());
+        getServiceMapping("urlToSolrClientMapping").put(ZOOKEEPER_URL, new SiddhiSolrClient("DEFAULT", solrClient));
+    }
+
+    private static SolrDocument document(String symbol, double price, long volume) {
+        SolrDocument document = new SolrDocument();
+        document.addField("id", symbol);
+        document.addField("symbol", symbol);
+        document.addField("price", price);
+        document.addField("volume", volume);
+        return document;
+    }
+
+    /*
+    The client service creates the clients for the zookeeper url when the table is connected, so the in memory client
+    is registered in its place for the table, which is not connected.
+    */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getServiceMapping(String name) throws Exception {
+        Field field = SolrClientServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (Map<String, Object>) field.get(null);
+    }
+
+    private SolrParams getRequest() {
+        Assert.assertEquals(requests.size(), 1, "The query is not sent as a single request");
+        return requests.get(0);
+    }
+
+    private static List<List<Object>> getRecords(Event[] events) {
+        List<Object[]> records = new ArrayList<>();
+        if (events != null) {
+            for (Event event : events) {
+                records.add(event.getData());
+            }
+        }
+        return getRecords(records);
+    }
+
+    private static List<List<Object>> getRecords(List<Object[]> records) {
+        List<List<Object>> values = new ArrayList<>(records.size());
+        for (Object[] record : records) {
+            values.add(Arrays.asList(record));
+        }
+        return values;
+    }
+
+    private static NamedList<Object> facets(long count, String facetName, List<NamedList<Object>> buckets,
+                                            NamedList<Object> missingBucket) {
+        NamedList<Object> facets = new NamedList<>();
+        facets.add("count", count);
+        if (facetName != null) {
+            facets.add(facetName, facet(buckets, missingBucket));
+        }
+        return facets;
+    }
+
+    private static NamedList<Object> facet(List<NamedList<Object>> buckets, NamedList<Object> missingBucket) {
+        NamedList<Object> facet = new NamedList<>();
+        facet.add("buckets", buckets);
+        if (missingBucket != null) {
+            facet.add("missing", missingBucket);
+        }
+        return facet;
+    }
+
+    private static NamedList<Object> bucket(Object value, long count, Object... stats) {
+        NamedList<Object> bucket = new NamedList<>();
+        if (value != null) {
+            bucket.add("val", value);
+        }
+        bucket.add("count", count);
+        for (int i = 0; i < stats.length; i += 2) {
+            bucket.add((String) stats[i], stats[i + 1]);
+        }
+        return bucket;
+    }
+}
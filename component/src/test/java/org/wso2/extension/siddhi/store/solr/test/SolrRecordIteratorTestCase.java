@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.test;
+
+import io.siddhi.query.api.definition.Attribute;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.store.solr.SolrRecordIterator;
+import org.wso2.extension.siddhi.store.solr.exceptions.SolrIteratorException;
+import org.wso2.extension.siddhi.store.solr.impl.SiddhiSolrClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents the tests of the pages fetched ahead by the solr record iterator, which serve the documents
+ * from memory, so they do not need a solr server.
+ */
+public class SolrRecordIteratorTestCase {
+    private static final String COLLECTION = "ITERATOR";
+    private static final int BATCH_SIZE = 10;
+    private ExecutorService prefetchExecutor;
+    private List<String> requestThreads;
+
+    @BeforeMethod
+    public void init() {
+        prefetchExecutor = Executors.newCachedThreadPool();
+        requestThreads = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    @Test
+    public void prefetchedReadTest() {
+        SolrRecordIterator iterator = createIterator(createClient(25, -1), 2, 60000);
+        Assert.assertEquals(readIds(iterator), getIds(0, 25));
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(requestThreads.size(), 3);
+        Assert.assertFalse(requestThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void prefetchedEmptyReadTest() {
+        SolrRecordIterator iterator = createIterator(createClient(0, -1), 2, 60000);
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(requestThreads.size(), 1);
+    }
+
+    @Test
+    public void stalledPrefetchTest() throws Exception {
+        SolrRecordIterator iterator = createIterator(createClient(35, -1), 1, 100);
+        List<Integer> ids = new ArrayList<>();
+        ids.add((Integer) iterator.nextDocument().getFieldValue("id"));
+        // the task fills the queue, holds the next page for the stall timeout and then stops fetching ahead
+        waitForRequests(3);
+        Thread.sleep(500);
+        Assert.assertEquals(requestThreads.size(), 3);
+        ids.addAll(readIds(iterator));
+        Assert.assertEquals(ids, getIds(0, 35));
+        // the pages fetched before the task stopped are taken first and the rest is fetched by the consumer
+        Assert.assertEquals(requestThreads.size(), 4);
+        Assert.assertEquals(requestThreads.get(3), Thread.currentThread().getName());
+    }
+
+    @Test
+    public void prefetchErrorTest() {
+        SolrRecordIterator iterator = createIterator(createClient(35, 1), 2, 60000);
+        List<Integer> ids = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                ids.add((Integer) iterator.nextDocument().getFieldValue("id"));
+            }
+            Assert.fail("The error of the prefetched page is not thrown");
+        } catch (SolrIteratorException e) {
+            Assert.assertTrue(e.getCause() instanceof SolrException);
+        }
+        // the pages fetched before the error are read before it is thrown
+        Assert.assertEquals(ids, getIds(0, 10));
+        Assert.assertEquals(requestThreads.size(), 2);
+    }
+
+    private SolrRecordIterator createIterator(SiddhiSolrClient solrClient, int prefetchDepth, long stallTimeoutMs) {
+        List<Attribute> attributes = Collections.singletonList(new Attribute("id", Attribute.Type.INT));
+        return new SolrRecordIterator.Builder(new SolrQuery("*:*"), solrClient, COLLECTION, attributes)
+                .batchSize(BATCH_SIZE).prefetch(prefetchExecutor, prefetchDepth)
+                .prefetchStallTimeout(stallTimeoutMs).build();
+    }
+
+    /*
+    Creates a client serving the given number of documents, which fails the request of the given index.
+    */
+    private SiddhiSolrClient createClient(int documentCount, int failedRequest) {
+        List<SolrDocument> documents = new ArrayList<>();
+        for (int i = 0; i < documentCount; i++) {
+            SolrDocument document = new SolrDocument();
+            document.addField("id", i);
+            documents.add(document);
+        }
+        InMemorySolrClient solrClient = new InMemorySolrClient(documents, BATCH_SIZE) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public NamedList<Object> request(SolrRequest request, String collection) {
+                int index = requestThreads.size();
+                requestThreads.add(Thread.currentThread().getName());
+                if (index == failedRequest) {
+                    throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Failed request: " + index);
+                }
+                return super.request(request, collection);
+            }
+        };
+        return new SiddhiSolrClient("DEFAULT", solrClient);
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (requestThreads.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<Integer> readIds(SolrRecordIterator iterator) {
+        List<Integer> ids = new ArrayList<>();
+        while (iterator.hasNext()) {
+            ids.add((Integer) iterator.next()[0]);
+        }
+        return ids;
+    }
+
+    private static List<Integer> getIds(int from, int to) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
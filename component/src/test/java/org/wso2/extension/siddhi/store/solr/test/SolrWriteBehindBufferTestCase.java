@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.extension.siddhi.store.solr.test;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.extension.siddhi.store.solr.beans.SiddhiSolrDocument;
+import org.wso2.extension.siddhi.store.solr.beans.SolrSchemaField;
+import org.wso2.extension.siddhi.store.solr.impl.SolrWriteBehindBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the tests of the write-behind buffer of the solr table, which do not need a solr server.
+ */
+public class SolrWriteBehindBufferTestCase {
+
+    private static final String COLLECTION = "WRITE_BEHIND";
+    private static final String VERSION_FIELD = "version";
+
+    @Test
+    public void writeOrderOfRecordTest() {
+        List<SiddhiSolrDocument> written = Collections.synchronizedList(new ArrayList<>());
+        SolrWriteBehindBuffer buffer = new SolrWriteBehindBuffer(COLLECTION, 16, 4, 50, 4, docs -> {
+            Thread.yield();
+            written.addAll(docs);
+        });
+        try {
+            for (int version = 0; version < 50; version++) {
+                List<SiddhiSolrDocument> docs = new ArrayList<>();
+                for (int id = 0; id < 10; id++) {
+                    docs.add(document("id" + id, version));
+                }
+                buffer.add(docs);
+                if (version % 10 == 0) {
+                    buffer.flush();
+                }
+            }
+            buffer.flush();
+            Assert.assertEquals(written.size(), 500);
+            Map<Object, Integer> lastVersions = new HashMap<>();
+            for (SiddhiSolrDocument doc : written) {
+                int version = (Integer) doc.getFieldValue(VERSION_FIELD);
+                Integer lastVersion = lastVersions.put(doc.getFieldValue(SolrSchemaField.FIELD_ID), version);
+                Assert.assertEquals(version, lastVersion == null ? 0 : lastVersion + 1);
+            }
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Test
+    public void flushWithoutFullBatchTest() {
+        List<SiddhiSolrDocument> written = Collections.synchronizedList(new ArrayList<>());
+        SolrWriteBehindBuffer buffer = new SolrWriteBehindBuffer(COLLECTION, 100, 100, 60000, 2, written::addAll);
+        try {
+            buffer.add(Collections.singletonList(document("id0", 0)));
+            long start = System.currentTimeMillis();
+            buffer.flush();
+            Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+            Assert.assertEquals(written.size(), 1);
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Test
+    public void closeWritesBufferedRecordsTest() {
+        List<SiddhiSolrDocument> written = Collections.synchronizedList(new ArrayList<>());
+        SolrWriteBehindBuffer buffer = new SolrWriteBehindBuffer(COLLECTION, 100, 100, 60000, 2, written::addAll);
+        List<SiddhiSolrDocument> docs = new ArrayList<>();
+        for (int id = 0; id < 10; id++) {
+            docs.add(document("id" + id, 0));
+        }
+        buffer.add(docs);
+        buffer.close();
+        Assert.assertEquals(written.size(), 10);
+    }
+
+    private static SiddhiSolrDocument document(String id, int version) {
+        SiddhiSolrDocument doc = new SiddhiSolrDocument();
+        doc.addField(SolrSchemaField.FIELD_ID, id);
+        doc.addField(VERSION_FIELD, version);
+        return doc;
+    }
+}